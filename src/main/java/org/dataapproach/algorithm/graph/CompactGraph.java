@@ -0,0 +1,134 @@
+package org.dataapproach.algorithm.graph;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.dataapproach.algorithm.graph.search.GraphNode;
+
+/**
+ * A directed graph stored in compressed sparse row form: the neighbors of
+ * vertex v are targets[offsets[v]] .. targets[offsets[v + 1] - 1].
+ * 
+ * Vertices are the ints 0 .. numVertices() - 1. Compared to a graph of
+ * GraphNode objects this takes two int arrays instead of one object and one
+ * array per vertex, and neighbor lists of consecutive vertices sit next to each
+ * other in memory. An undirected graph is stored with both directions of every
+ * edge.
+ * 
+ * https://en.wikipedia.org/wiki/Sparse_matrix#Compressed_sparse_row_(CSR,_CRS_or_Yale_format)
+ * 
+ * @author sarath
+ *
+ */
+public class CompactGraph {
+
+	public final int[] offsets;
+	public final int[] targets;
+
+	public CompactGraph(int[] offsets, int[] targets) {
+		if (offsets.length == 0 || offsets[offsets.length - 1] != targets.length)
+			throw new IllegalArgumentException("offsets must end with targets.length");
+		this.offsets = offsets;
+		this.targets = targets;
+	}
+
+	public int numVertices() {
+		return offsets.length - 1;
+	}
+
+	public int numEdges() {
+		return targets.length;
+	}
+
+	public int degree(int v) {
+		return offsets[v + 1] - offsets[v];
+	}
+
+	/**
+	 * Builds a graph from an edge list with a counting sort on the source
+	 * vertex. Edges keep their relative order within a neighbor list.
+	 * 
+	 * @param numVertices
+	 *            the number of vertices, ids are 0 .. numVertices - 1.
+	 * @param src
+	 *            the source vertex of every edge.
+	 * @param dst
+	 *            the target vertex of every edge.
+	 * @return the graph.
+	 */
+	public static CompactGraph fromEdges(int numVertices, int[] src, int[] dst) {
+		if (src.length != dst.length)
+			throw new IllegalArgumentException("src and dst must have the same length");
+		int[] offsets = new int[numVertices + 1];
+		for (int e = 0; e < src.length; e++)
+			offsets[src[e] + 1]++;
+		for (int v = 0; v < numVertices; v++)
+			offsets[v + 1] += offsets[v];
+
+		int[] next = new int[numVertices];
+		System.arraycopy(offsets, 0, next, 0, numVertices);
+		int[] targets = new int[dst.length];
+		for (int e = 0; e < src.length; e++)
+			targets[next[src[e]]++] = dst[e];
+		return new CompactGraph(offsets, targets);
+	}
+
+	/**
+	 * Builds a graph from GraphNode objects. Vertex i is nodes[i]; neighbors
+	 * that are not in the array are dropped.
+	 * 
+	 * @param nodes
+	 *            the vertices of the graph.
+	 * @return the graph.
+	 */
+	public static CompactGraph fromGraphNodes(GraphNode[] nodes) {
+		Map<GraphNode, Integer> index = new IdentityHashMap<GraphNode, Integer>();
+		int edges = 0;
+		for (int i = 0; i < nodes.length; i++) {
+			index.put(nodes[i], i);
+			if (nodes[i].neighbors != null)
+				edges += nodes[i].neighbors.length;
+		}
+		int[] offsets = new int[nodes.length + 1];
+		int[] targets = new int[edges];
+		int e = 0;
+		for (int i = 0; i < nodes.length; i++) {
+			if (nodes[i].neighbors != null) {
+				for (GraphNode w : nodes[i].neighbors) {
+					Integer j = index.get(w);
+					if (j != null)
+						targets[e++] = j;
+				}
+			}
+			offsets[i + 1] = e;
+		}
+		if (e < edges) {
+			int[] trimmed = new int[e];
+			System.arraycopy(targets, 0, trimmed, 0, e);
+			targets = trimmed;
+		}
+		return new CompactGraph(offsets, targets);
+	}
+
+	/**
+	 * @return the graph with every edge reversed.
+	 */
+	public CompactGraph transpose() {
+		int n = numVertices();
+		int[] rOffsets = new int[n + 1];
+		for (int e = 0; e < targets.length; e++)
+			rOffsets[targets[e] + 1]++;
+		for (int v = 0; v < n; v++)
+			rOffsets[v + 1] += rOffsets[v];
+
+		int[] next = new int[n];
+		System.arraycopy(rOffsets, 0, next, 0, n);
+		int[] rTargets = new int[targets.length];
+		for (int v = 0; v < n; v++) {
+			for (int e = offsets[v]; e < offsets[v + 1]; e++)
+				rTargets[next[targets[e]]++] = v;
+		}
+		return new CompactGraph(rOffsets, rTargets);
+	}
+
+}
@@ -0,0 +1,254 @@
+package org.dataapproach.algorithm.graph.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.dataapproach.algorithm.graph.CompactGraph;
+import org.dataapproach.algorithm.graph.search.BreadthFirstSearch;
+import org.dataapproach.algorithm.graph.search.GraphNode;
+
+/**
+ * Caches the result of BFS per source vertex so that repeated queries from the
+ * same source are answered with an array lookup instead of a new traversal.
+ * 
+ * Two kinds of results are kept: the full distance array (4 bytes per vertex)
+ * for distance queries, and a reachable bit set (1 bit per vertex) for
+ * reachability queries. A reachability query is answered from a cached distance
+ * array when there is one.
+ * 
+ * The cache is bounded by the bytes held by the cached arrays plus a fixed
+ * estimate of the map's own cost per entry. Entries are kept
+ * in least recently used order in an access ordered LinkedHashMap and the
+ * oldest entries are dropped until the new one fits. A result larger than the
+ * whole budget is returned but not cached.
+ * 
+ * When the graph changes call {@link #invalidate(CompactGraph)}. Traversals
+ * that were running against the old graph do not put their results into the
+ * cache afterwards.
+ * 
+ * The cache is safe for concurrent use. Traversals run outside the lock, so two
+ * threads missing on the same source may both compute it.
+ * 
+ * https://en.wikipedia.org/wiki/Cache_replacement_policies#LRU
+ * 
+ * @author sarath
+ *
+ */
+public class BfsQueryCache {
+
+	private static final long ARRAY_HEADER_BYTES = 16;
+
+	/**
+	 * Map cost of one entry on a 64 bit JVM with compressed references: the
+	 * LinkedHashMap entry (40), the boxed Long key (16) and its share of the
+	 * hash table (8).
+	 */
+	private static final long ENTRY_OVERHEAD_BYTES = 64;
+
+	private final long maxBytes;
+	private final LinkedHashMap<Long, Object> entries =
+			new LinkedHashMap<Long, Object>(16, 0.75f, true);
+
+	private CompactGraph graph;
+	private long generation;
+	private long bytes;
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	public static void main(String[] args) {
+
+		GraphNode n1 = new GraphNode(1);
+		GraphNode n2 = new GraphNode(2);
+		GraphNode n3 = new GraphNode(3);
+		GraphNode n4 = new GraphNode(4);
+		GraphNode n5 = new GraphNode(5);
+		GraphNode n6 = new GraphNode(6);
+		GraphNode n7 = new GraphNode(7);
+
+		n1.neighbors = new GraphNode[] {n2, n4, n5};
+		n2.neighbors = new GraphNode[] {n1, n3, n4};
+		n3.neighbors = new GraphNode[] {n2, n4, n7};
+		n4.neighbors = new GraphNode[] {n1, n2, n3, n5, n6, n7};
+		n5.neighbors = new GraphNode[] {n1, n4, n6};
+		n6.neighbors = new GraphNode[] {n4, n5, n7};
+		n7.neighbors = new GraphNode[] {n3, n4, n6};
+
+		GraphNode[] nodes = new GraphNode[] {n1, n2, n3, n4, n5, n6, n7};
+		BfsQueryCache cache = new BfsQueryCache(CompactGraph.fromGraphNodes(nodes), 1024);
+
+		for (int i = 0; i < 3; i++) {
+			System.out.println("distance 1 -> 7 = " + cache.distance(0, 6));
+			System.out.println("reachable 6 -> 3 = " + cache.isReachable(5, 2));
+		}
+		System.out.println("hits " + cache.hits() + ", misses " + cache.misses()
+				+ ", bytes " + cache.sizeInBytes());
+
+	}
+
+	/**
+	 * @param graph
+	 *            the graph to answer queries on.
+	 * @param maxBytes
+	 *            the most bytes of cached results to keep.
+	 */
+	public BfsQueryCache(CompactGraph graph, long maxBytes) {
+		if (maxBytes < 0)
+			throw new IllegalArgumentException("maxBytes must not be negative");
+		this.graph = graph;
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * @return the number of edges on a shortest path from source to target, -1
+	 *         if target is not reachable.
+	 */
+	public int distance(int source, int target) {
+		return distances(source)[target];
+	}
+
+	/**
+	 * @return true if there is a path from source to target.
+	 */
+	public boolean isReachable(int source, int target) {
+		long[] reached;
+		CompactGraph current;
+		long expected;
+		synchronized (this) {
+			Object cached = entries.get(distanceKey(source));
+			if (cached != null) {
+				hits++;
+				return ((int[]) cached)[target] != -1;
+			}
+			cached = entries.get(reachableKey(source));
+			if (cached != null) {
+				hits++;
+				reached = (long[]) cached;
+				return (reached[target >>> 6] & (1L << target)) != 0;
+			}
+			misses++;
+			current = graph;
+			expected = generation;
+		}
+		reached = BreadthFirstSearch.reachable(current, source);
+		put(reachableKey(source), reached, sizeOf(reached), expected);
+		return (reached[target >>> 6] & (1L << target)) != 0;
+	}
+
+	/**
+	 * The distances of all vertices from source. The returned array is shared
+	 * with the cache and must not be modified.
+	 * 
+	 * @return the distance of every vertex from source, -1 if unreachable.
+	 */
+	public int[] distances(int source) {
+		CompactGraph current;
+		long expected;
+		synchronized (this) {
+			Object cached = entries.get(distanceKey(source));
+			if (cached != null) {
+				hits++;
+				return (int[]) cached;
+			}
+			misses++;
+			current = graph;
+			expected = generation;
+		}
+		int[] distance = BreadthFirstSearch.distances(current, source);
+		put(distanceKey(source), distance, sizeOf(distance), expected);
+		return distance;
+	}
+
+	private synchronized void put(Long key, Object value, long size, long expected) {
+		if (expected != generation || size > maxBytes)
+			return;
+		Object previous = entries.put(key, value);
+		if (previous != null)
+			bytes -= sizeOf(previous);
+		bytes += size;
+
+		Iterator<Map.Entry<Long, Object>> it = entries.entrySet().iterator();
+		while (bytes > maxBytes && it.hasNext()) {
+			Map.Entry<Long, Object> eldest = it.next();
+			if (eldest.getKey().equals(key))
+				continue;
+			bytes -= sizeOf(eldest.getValue());
+			it.remove();
+			evictions++;
+		}
+	}
+
+	/**
+	 * Drops all cached results for one source.
+	 */
+	public synchronized void invalidate(int source) {
+		Object removed = entries.remove(distanceKey(source));
+		if (removed != null)
+			bytes -= sizeOf(removed);
+		removed = entries.remove(reachableKey(source));
+		if (removed != null)
+			bytes -= sizeOf(removed);
+	}
+
+	/**
+	 * Drops all cached results, for example after the graph was modified in
+	 * place.
+	 */
+	public synchronized void invalidateAll() {
+		entries.clear();
+		bytes = 0;
+		generation++;
+	}
+
+	/**
+	 * Switches to a new version of the graph and drops all cached results.
+	 */
+	public synchronized void invalidate(CompactGraph newGraph) {
+		graph = newGraph;
+		invalidateAll();
+	}
+
+	public synchronized long hits() {
+		return hits;
+	}
+
+	public synchronized long misses() {
+		return misses;
+	}
+
+	public synchronized long evictions() {
+		return evictions;
+	}
+
+	public synchronized int entryCount() {
+		return entries.size();
+	}
+
+	/**
+	 * @return the estimated bytes currently held by cached results, including
+	 *         the map entries.
+	 */
+	public synchronized long sizeInBytes() {
+		return bytes;
+	}
+
+	public long maxBytes() {
+		return maxBytes;
+	}
+
+	private static Long distanceKey(int source) {
+		return Long.valueOf((long) source << 1);
+	}
+
+	private static Long reachableKey(int source) {
+		return Long.valueOf(((long) source << 1) | 1);
+	}
+
+	private static long sizeOf(Object value) {
+		if (value instanceof int[])
+			return ENTRY_OVERHEAD_BYTES + ARRAY_HEADER_BYTES + 4L * ((int[]) value).length;
+		return ENTRY_OVERHEAD_BYTES + ARRAY_HEADER_BYTES + 8L * ((long[]) value).length;
+	}
+
+}
@@ -0,0 +1,356 @@
+package org.dataapproach.algorithm.graph.components;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.dataapproach.algorithm.graph.search.GraphNode;
+
+/**
+ * Connected components computed with a concurrent (lock-free) union-find.
+ * 
+ * Every vertex starts as its own root in an int parent array. Each edge (u, v)
+ * is processed by finding the roots of u and v and, if they differ, linking the
+ * larger root below the smaller one with a single compare-and-set. Linking
+ * always from the higher id to the lower id means no cycle can ever be formed,
+ * so several threads can union edges at the same time without locks. Find uses
+ * path splitting: every vertex on the path is pointed at its grandparent, which
+ * keeps the trees shallow without a second pass.
+ * 
+ * The edge array is cut into ranges that are processed in parallel with
+ * fork/join. Once all edges are linked every vertex is labelled with its root,
+ * which is the smallest vertex id of its component.
+ * 
+ * Union-find ignores the direction of an edge, so for a directed graph the same
+ * routine yields the weakly connected components.
+ * 
+ * A label propagation variant is also provided: every vertex starts with its
+ * own id as label and each edge pulls both endpoints down to the smaller label
+ * until nothing changes. It needs one pass per unit of component diameter but
+ * has no pointer chasing, so it does well on low-diameter graphs.
+ * 
+ * https://en.wikipedia.org/wiki/Disjoint-set_data_structure
+ * 
+ * @author sarath
+ *
+ */
+public class ConnectedComponents {
+
+	/**
+	 * Edge ranges smaller than this are processed on the current thread.
+	 */
+	private static final int THRESHOLD = 1 << 14;
+
+	public static void main(String[] args) {
+
+		GraphNode n1 = new GraphNode(1);
+		GraphNode n2 = new GraphNode(2);
+		GraphNode n3 = new GraphNode(3);
+		GraphNode n4 = new GraphNode(4);
+		GraphNode n5 = new GraphNode(5);
+		GraphNode n6 = new GraphNode(6);
+		GraphNode n7 = new GraphNode(7);
+
+		n1.neighbors = new GraphNode[] {n2, n4};
+		n2.neighbors = new GraphNode[] {n1, n4};
+		n3.neighbors = new GraphNode[] {n7};
+		n4.neighbors = new GraphNode[] {n1, n2};
+		n5.neighbors = new GraphNode[] {n6};
+		n6.neighbors = new GraphNode[] {n5};
+		n7.neighbors = new GraphNode[] {n3};
+
+		GraphNode[] nodes = new GraphNode[] {n1, n2, n3, n4, n5, n6, n7};
+
+		int[] labels = components(nodes);
+		for (int i = 0; i < nodes.length; i++) {
+			System.out.println(nodes[i].value + " -> component " + nodes[labels[i]].value);
+		}
+		System.out.println("Components: " + countComponents(labels));
+
+	}
+
+	/**
+	 * Connected components of a graph wired up from GraphNode objects. Vertices
+	 * are identified by their position in the given array; neighbors that are
+	 * not in the array are ignored. When the neighbor lists are directed this
+	 * returns the weakly connected components.
+	 * 
+	 * @param nodes
+	 *            the vertices of the graph.
+	 * @return the component label of each vertex, indexed like nodes.
+	 */
+	public static int[] components(GraphNode[] nodes) {
+		Map<GraphNode, Integer> index = new IdentityHashMap<GraphNode, Integer>();
+		int edges = 0;
+		for (int i = 0; i < nodes.length; i++) {
+			index.put(nodes[i], i);
+			if (nodes[i].neighbors != null)
+				edges += nodes[i].neighbors.length;
+		}
+		int[] src = new int[edges];
+		int[] dst = new int[edges];
+		int e = 0;
+		for (int i = 0; i < nodes.length; i++) {
+			if (nodes[i].neighbors == null)
+				continue;
+			for (GraphNode w : nodes[i].neighbors) {
+				Integer j = index.get(w);
+				if (j != null) {
+					src[e] = i;
+					dst[e++] = j;
+				}
+			}
+		}
+		return components(nodes.length, src, dst, e);
+	}
+
+	/**
+	 * Connected components of an edge list, computed with the parallel
+	 * union-find.
+	 * 
+	 * @param numVertices
+	 *            the number of vertices, ids are 0 .. numVertices - 1.
+	 * @param src
+	 *            the source vertex of every edge.
+	 * @param dst
+	 *            the target vertex of every edge.
+	 * @return for every vertex the smallest vertex id in its component.
+	 */
+	public static int[] components(int numVertices, int[] src, int[] dst) {
+		if (src.length != dst.length)
+			throw new IllegalArgumentException("src and dst must have the same length");
+		return components(numVertices, src, dst, src.length);
+	}
+
+	/**
+	 * Weakly connected components of a directed edge list. Union-find does not
+	 * look at edge direction, so this is the same computation as
+	 * {@link #components(int, int[], int[])}.
+	 * 
+	 * @param numVertices
+	 *            the number of vertices, ids are 0 .. numVertices - 1.
+	 * @param src
+	 *            the source vertex of every edge.
+	 * @param dst
+	 *            the target vertex of every edge.
+	 * @return for every vertex the smallest vertex id in its component.
+	 */
+	public static int[] weaklyConnectedComponents(int numVertices, int[] src, int[] dst) {
+		return components(numVertices, src, dst);
+	}
+
+	/**
+	 * Union-find over the first numEdges entries of src and dst, which must
+	 * both hold at least that many.
+	 */
+	private static int[] components(int numVertices, int[] src, int[] dst, int numEdges) {
+		AtomicIntegerArray parent = new AtomicIntegerArray(numVertices);
+		for (int i = 0; i < numVertices; i++)
+			parent.set(i, i);
+
+		ForkJoinPool.commonPool().invoke(new UnionTask(parent, src, dst, 0, numEdges));
+
+		int[] labels = new int[numVertices];
+		ForkJoinPool.commonPool().invoke(new LabelTask(parent, labels, 0, numVertices));
+		return labels;
+	}
+
+	/**
+	 * Connected components of an edge list computed by parallel min-label
+	 * propagation. Produces the same labels as the union-find version.
+	 * 
+	 * @param numVertices
+	 *            the number of vertices, ids are 0 .. numVertices - 1.
+	 * @param src
+	 *            the source vertex of every edge.
+	 * @param dst
+	 *            the target vertex of every edge.
+	 * @return for every vertex the smallest vertex id in its component.
+	 */
+	public static int[] labelPropagation(int numVertices, int[] src, int[] dst) {
+		if (src.length != dst.length)
+			throw new IllegalArgumentException("src and dst must have the same length");
+		AtomicIntegerArray label = new AtomicIntegerArray(numVertices);
+		for (int i = 0; i < numVertices; i++)
+			label.set(i, i);
+
+		PropagateTask task;
+		do {
+			task = new PropagateTask(label, src, dst, 0, src.length);
+			ForkJoinPool.commonPool().invoke(task);
+		} while (task.changed);
+
+		int[] labels = new int[numVertices];
+		for (int i = 0; i < numVertices; i++)
+			labels[i] = label.get(i);
+		return labels;
+	}
+
+	/**
+	 * Counts the distinct components in a labelling produced by this class.
+	 * 
+	 * @param labels
+	 *            component label of each vertex.
+	 * @return the number of components.
+	 */
+	public static int countComponents(int[] labels) {
+		int count = 0;
+		for (int i = 0; i < labels.length; i++) {
+			if (labels[i] == i)
+				count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Finds the root of x, pointing every vertex on the way at its grandparent
+	 * (path splitting).
+	 */
+	private static int find(AtomicIntegerArray parent, int x) {
+		int p = parent.get(x);
+		while (p != x) {
+			int gp = parent.get(p);
+			if (p != gp)
+				parent.compareAndSet(x, p, gp);
+			x = p;
+			p = gp;
+		}
+		return x;
+	}
+
+	/**
+	 * Links the trees of u and v, always hanging the larger root under the
+	 * smaller one. Retries when another thread relinked a root in between.
+	 */
+	private static void union(AtomicIntegerArray parent, int u, int v) {
+		while (true) {
+			u = find(parent, u);
+			v = find(parent, v);
+			if (u == v)
+				return;
+			if (u < v) {
+				int tmp = u;
+				u = v;
+				v = tmp;
+			}
+			if (parent.compareAndSet(u, u, v))
+				return;
+		}
+	}
+
+	/**
+	 * Lowers the value at index i to at most value.
+	 * 
+	 * @return true if the value was lowered.
+	 */
+	private static boolean lower(AtomicIntegerArray label, int i, int value) {
+		int current;
+		while (value < (current = label.get(i))) {
+			if (label.compareAndSet(i, current, value))
+				return true;
+		}
+		return false;
+	}
+
+	private static class UnionTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final AtomicIntegerArray parent;
+		private final int[] src;
+		private final int[] dst;
+		private final int low;
+		private final int high;
+
+		UnionTask(AtomicIntegerArray parent, int[] src, int[] dst, int low, int high) {
+			this.parent = parent;
+			this.src = src;
+			this.dst = dst;
+			this.low = low;
+			this.high = high;
+		}
+
+		@Override
+		protected void compute() {
+			if (high - low <= THRESHOLD) {
+				for (int e = low; e < high; e++)
+					union(parent, src[e], dst[e]);
+			} else {
+				int middle = (low + high) >>> 1;
+				invokeAll(new UnionTask(parent, src, dst, low, middle),
+						new UnionTask(parent, src, dst, middle, high));
+			}
+		}
+	}
+
+	private static class LabelTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final AtomicIntegerArray parent;
+		private final int[] labels;
+		private final int low;
+		private final int high;
+
+		LabelTask(AtomicIntegerArray parent, int[] labels, int low, int high) {
+			this.parent = parent;
+			this.labels = labels;
+			this.low = low;
+			this.high = high;
+		}
+
+		@Override
+		protected void compute() {
+			if (high - low <= THRESHOLD) {
+				for (int i = low; i < high; i++)
+					labels[i] = find(parent, i);
+			} else {
+				int middle = (low + high) >>> 1;
+				invokeAll(new LabelTask(parent, labels, low, middle),
+						new LabelTask(parent, labels, middle, high));
+			}
+		}
+	}
+
+	private static class PropagateTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final AtomicIntegerArray label;
+		private final int[] src;
+		private final int[] dst;
+		private final int low;
+		private final int high;
+		boolean changed;
+
+		PropagateTask(AtomicIntegerArray label, int[] src, int[] dst, int low, int high) {
+			this.label = label;
+			this.src = src;
+			this.dst = dst;
+			this.low = low;
+			this.high = high;
+		}
+
+		@Override
+		protected void compute() {
+			if (high - low <= THRESHOLD) {
+				for (int e = low; e < high; e++) {
+					int u = src[e];
+					int v = dst[e];
+					int lu = label.get(u);
+					int lv = label.get(v);
+					if (lu < lv)
+						changed |= lower(label, v, lu);
+					else if (lv < lu)
+						changed |= lower(label, u, lv);
+				}
+			} else {
+				int middle = (low + high) >>> 1;
+				PropagateTask left = new PropagateTask(label, src, dst, low, middle);
+				PropagateTask right = new PropagateTask(label, src, dst, middle, high);
+				invokeAll(left, right);
+				changed = left.changed || right.changed;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,172 @@
+package org.dataapproach.algorithm.graph.components;
+
+import org.dataapproach.algorithm.graph.CompactGraph;
+import org.dataapproach.algorithm.graph.search.GraphNode;
+
+/**
+ * Tarjan's strongly connected components algorithm, written without recursion.
+ * 
+ * A depth first search numbers the vertices in visit order (index) and keeps
+ * for every vertex the smallest index reachable through its subtree and one
+ * back edge (low link). A vertex whose low link equals its own index is the
+ * root of a strongly connected component, and the component is everything
+ * above it on the Tarjan stack.
+ * 
+ * The recursive formulation needs one Java stack frame per vertex on the
+ * current path and overflows on deep graphs (see DepthFirstSearchRecursive).
+ * Here the call stack is an int array of vertices together with the position
+ * of the next edge to look at for each of them, so the depth is only bounded
+ * by the heap. All per-vertex state lives in primitive arrays.
+ * 
+ * Components are numbered in the order Tarjan completes them, which is a
+ * reverse topological order of the condensation: if there is an edge from
+ * component a to component b then a > b.
+ * 
+ * https://en.wikipedia.org/wiki/Tarjan%27s_strongly_connected_components_algorithm
+ * 
+ * @author sarath
+ *
+ */
+public class StronglyConnectedComponents {
+
+	public static void main(String[] args) {
+
+		GraphNode n1 = new GraphNode(1);
+		GraphNode n2 = new GraphNode(2);
+		GraphNode n3 = new GraphNode(3);
+		GraphNode n4 = new GraphNode(4);
+		GraphNode n5 = new GraphNode(5);
+		GraphNode n6 = new GraphNode(6);
+		GraphNode n7 = new GraphNode(7);
+
+		n1.neighbors = new GraphNode[] {n2};
+		n2.neighbors = new GraphNode[] {n3, n4};
+		n3.neighbors = new GraphNode[] {n1};
+		n4.neighbors = new GraphNode[] {n5};
+		n5.neighbors = new GraphNode[] {n6};
+		n6.neighbors = new GraphNode[] {n4, n7};
+		n7.neighbors = new GraphNode[] {};
+
+		GraphNode[] nodes = new GraphNode[] {n1, n2, n3, n4, n5, n6, n7};
+
+		int[] component = components(CompactGraph.fromGraphNodes(nodes));
+		for (int i = 0; i < nodes.length; i++) {
+			System.out.println(nodes[i].value + " -> component " + component[i]);
+		}
+
+	}
+
+	/**
+	 * Computes the strongly connected components of a directed graph.
+	 * 
+	 * @param graph
+	 *            the graph.
+	 * @return the component number of every vertex, 0 .. count - 1, in reverse
+	 *         topological order of the condensation.
+	 */
+	public static int[] components(CompactGraph graph) {
+		int n = graph.numVertices();
+		int[] offsets = graph.offsets;
+		int[] targets = graph.targets;
+
+		int[] index = new int[n];
+		int[] low = new int[n];
+		int[] component = new int[n];
+		boolean[] onStack = new boolean[n];
+		for (int v = 0; v < n; v++) {
+			index[v] = -1;
+			component[v] = -1;
+		}
+
+		int[] tarjanStack = new int[n];
+		int tarjanTop = 0;
+		int[] callStack = new int[n];
+		int[] nextEdge = new int[n];
+		int callTop = 0;
+
+		int counter = 0;
+		int components = 0;
+
+		for (int root = 0; root < n; root++) {
+			if (index[root] != -1)
+				continue;
+
+			index[root] = low[root] = counter++;
+			tarjanStack[tarjanTop++] = root;
+			onStack[root] = true;
+			callStack[callTop] = root;
+			nextEdge[callTop++] = offsets[root];
+
+			while (callTop > 0) {
+				int v = callStack[callTop - 1];
+				int e = nextEdge[callTop - 1];
+
+				if (e < offsets[v + 1]) {
+					nextEdge[callTop - 1] = e + 1;
+					int w = targets[e];
+					if (index[w] == -1) {
+						// "Recurse" into w
+						index[w] = low[w] = counter++;
+						tarjanStack[tarjanTop++] = w;
+						onStack[w] = true;
+						callStack[callTop] = w;
+						nextEdge[callTop++] = offsets[w];
+					} else if (onStack[w] && index[w] < low[v]) {
+						low[v] = index[w];
+					}
+					continue;
+				}
+
+				// All edges of v done, v is finished
+				if (low[v] == index[v]) {
+					int w;
+					do {
+						w = tarjanStack[--tarjanTop];
+						onStack[w] = false;
+						component[w] = components;
+					} while (w != v);
+					components++;
+				}
+				callTop--;
+				if (callTop > 0) {
+					int parent = callStack[callTop - 1];
+					if (low[v] < low[parent])
+						low[parent] = low[v];
+				}
+			}
+		}
+		return component;
+	}
+
+	/**
+	 * @param component
+	 *            a labelling produced by {@link #components(CompactGraph)}.
+	 * @return the number of strongly connected components.
+	 */
+	public static int countComponents(int[] component) {
+		int max = -1;
+		for (int c : component) {
+			if (c > max)
+				max = c;
+		}
+		return max + 1;
+	}
+
+	/**
+	 * @param graph
+	 *            the graph.
+	 * @return true if the directed graph contains a cycle (including a self
+	 *         loop).
+	 */
+	public static boolean hasCycle(CompactGraph graph) {
+		int n = graph.numVertices();
+		for (int v = 0; v < n; v++) {
+			for (int e = graph.offsets[v]; e < graph.offsets[v + 1]; e++) {
+				if (graph.targets[e] == v)
+					return true;
+			}
+		}
+		return countComponents(components(graph)) < n;
+	}
+
+}
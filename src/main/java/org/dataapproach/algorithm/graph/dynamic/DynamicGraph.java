@@ -0,0 +1,466 @@
+package org.dataapproach.algorithm.graph.dynamic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.dataapproach.algorithm.graph.CompactGraph;
+
+/**
+ * A directed graph that accepts edge insertions and deletions in batches.
+ * 
+ * The bulk of the edges lives in a CompactGraph with sorted neighbor lists
+ * (the base). Updates do not touch the base: inserted edges go into a small
+ * per-vertex delta array and deleted base edges are remembered in a set. Reads
+ * combine the base with the deltas. Once the deltas grow past a fraction of the
+ * base they are merged into a fresh base (compaction), so the cost of an update
+ * stays small and the read path stays close to a plain CompactGraph.
+ * 
+ * The same structure is kept for the reversed edges, so both the out-neighbors
+ * and the in-neighbors of a vertex are available; incremental algorithms such
+ * as {@link IncrementalBfs} need the latter to repair deletions.
+ * 
+ * The graph holds a set of edges: inserting an edge that is already present or
+ * deleting one that is not does nothing. The number of vertices is fixed.
+ * Listeners are told about every batch after it was applied, with only the
+ * edges that actually changed.
+ * 
+ * The graph is safe to use from several threads. Reads share a read lock; a
+ * batch, including the compaction it may trigger and the calls to the
+ * listeners, runs under the write lock, so readers never see a half applied
+ * batch or a listener halfway through its repair. Listeners may read the graph
+ * from their callbacks but must not update it.
+ * 
+ * @author sarath
+ *
+ */
+public class DynamicGraph {
+
+	/**
+	 * Receives the effective changes of every batch.
+	 */
+	public interface Listener {
+		void edgesInserted(int[] src, int[] dst, int count);
+
+		void edgesDeleted(int[] src, int[] dst, int count);
+	}
+
+	/**
+	 * Compact when the deltas reach this fraction of the base edge count.
+	 */
+	private static final int COMPACT_DIVISOR = 8;
+	private static final int MIN_COMPACT_CHANGES = 1024;
+
+	private final int numVertices;
+	private final Adjacency out;
+	private final Adjacency in;
+	private final List<Listener> listeners = new ArrayList<Listener>();
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	private long numEdges;
+
+	public static void main(String[] args) {
+
+		// The same 7 vertex graph the search classes use, vertex i is node i + 1
+		int[] src = new int[] {0, 0, 0, 1, 1, 2, 2, 3, 3, 3, 4, 5};
+		int[] dst = new int[] {1, 3, 4, 2, 3, 3, 6, 4, 5, 6, 5, 6};
+		DynamicGraph graph = new DynamicGraph(7);
+		graph.addEdges(src, dst);
+		graph.addEdges(dst, src);
+
+		System.out.println("Edges: " + graph.numEdges()
+				+ ", neighbors of 4: " + Arrays.toString(graph.neighbors(3)));
+		graph.removeEdges(new int[] {3, 3}, new int[] {5, 6});
+		System.out.println("Edges: " + graph.numEdges()
+				+ ", neighbors of 4: " + Arrays.toString(graph.neighbors(3)));
+		graph.compact();
+		System.out.println("Compacted: " + graph.snapshot().numEdges() + " edges");
+
+	}
+
+	/**
+	 * Creates an empty graph.
+	 * 
+	 * @param numVertices
+	 *            the number of vertices, ids are 0 .. numVertices - 1.
+	 */
+	public DynamicGraph(int numVertices) {
+		this(new CompactGraph(new int[numVertices + 1], new int[0]));
+	}
+
+	/**
+	 * Creates a graph holding the edges of base. Duplicate edges are dropped.
+	 * 
+	 * @param base
+	 *            the initial edges.
+	 */
+	public DynamicGraph(CompactGraph base) {
+		this.numVertices = base.numVertices();
+		CompactGraph sorted = normalize(base);
+		this.out = new Adjacency(sorted);
+		this.in = new Adjacency(sorted.transpose());
+		this.numEdges = sorted.numEdges();
+	}
+
+	public int numVertices() {
+		return numVertices;
+	}
+
+	public long numEdges() {
+		lock.readLock().lock();
+		try {
+			return numEdges;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public void addListener(Listener listener) {
+		lock.writeLock().lock();
+		try {
+			listeners.add(listener);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void removeListener(Listener listener) {
+		lock.writeLock().lock();
+		try {
+			listeners.remove(listener);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public boolean hasEdge(int u, int v) {
+		lock.readLock().lock();
+		try {
+			return out.contains(u, v);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public int outDegree(int v) {
+		lock.readLock().lock();
+		try {
+			return out.degree(v);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public int inDegree(int v) {
+		lock.readLock().lock();
+		try {
+			return in.degree(v);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return a new array with the targets of the edges leaving v.
+	 */
+	public int[] neighbors(int v) {
+		lock.readLock().lock();
+		try {
+			return out.neighbors(v);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return a new array with the sources of the edges entering v.
+	 */
+	public int[] inNeighbors(int v) {
+		lock.readLock().lock();
+		try {
+			return in.neighbors(v);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Inserts a batch of edges.
+	 * 
+	 * @param src
+	 *            the source vertex of every edge.
+	 * @param dst
+	 *            the target vertex of every edge.
+	 * @return the number of edges that were not present before.
+	 */
+	public int addEdges(int[] src, int[] dst) {
+		if (src.length != dst.length)
+			throw new IllegalArgumentException("src and dst must have the same length");
+		lock.writeLock().lock();
+		try {
+			int[] addedSrc = new int[src.length];
+			int[] addedDst = new int[src.length];
+			int count = 0;
+			for (int i = 0; i < src.length; i++) {
+				checkVertex(src[i]);
+				checkVertex(dst[i]);
+				if (out.insert(src[i], dst[i])) {
+					in.insert(dst[i], src[i]);
+					addedSrc[count] = src[i];
+					addedDst[count++] = dst[i];
+				}
+			}
+			numEdges += count;
+			maybeCompact();
+			if (count > 0) {
+				for (Listener listener : listeners)
+					listener.edgesInserted(addedSrc, addedDst, count);
+			}
+			return count;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Deletes a batch of edges.
+	 * 
+	 * @param src
+	 *            the source vertex of every edge.
+	 * @param dst
+	 *            the target vertex of every edge.
+	 * @return the number of edges that were present and got removed.
+	 */
+	public int removeEdges(int[] src, int[] dst) {
+		if (src.length != dst.length)
+			throw new IllegalArgumentException("src and dst must have the same length");
+		lock.writeLock().lock();
+		try {
+			int[] removedSrc = new int[src.length];
+			int[] removedDst = new int[src.length];
+			int count = 0;
+			for (int i = 0; i < src.length; i++) {
+				checkVertex(src[i]);
+				checkVertex(dst[i]);
+				if (out.delete(src[i], dst[i])) {
+					in.delete(dst[i], src[i]);
+					removedSrc[count] = src[i];
+					removedDst[count++] = dst[i];
+				}
+			}
+			numEdges -= count;
+			maybeCompact();
+			if (count > 0) {
+				for (Listener listener : listeners)
+					listener.edgesDeleted(removedSrc, removedDst, count);
+			}
+			return count;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public boolean addEdge(int u, int v) {
+		return addEdges(new int[] {u}, new int[] {v}) == 1;
+	}
+
+	public boolean removeEdge(int u, int v) {
+		return removeEdges(new int[] {u}, new int[] {v}) == 1;
+	}
+
+	/**
+	 * Merges all pending deltas into the base adjacency.
+	 */
+	public void compact() {
+		lock.writeLock().lock();
+		try {
+			out.compact();
+			in.compact();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * @return the current edges as a CompactGraph with sorted neighbor lists.
+	 *         Compacts first; the result is not affected by later updates.
+	 */
+	public CompactGraph snapshot() {
+		lock.writeLock().lock();
+		try {
+			compact();
+			return out.base;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * The lock guarding this graph, for listeners whose own state must change
+	 * together with it.
+	 */
+	ReentrantReadWriteLock lock() {
+		return lock;
+	}
+
+	private void maybeCompact() {
+		long threshold = Math.max(MIN_COMPACT_CHANGES, out.base.numEdges() / COMPACT_DIVISOR);
+		if (out.pendingChanges >= threshold)
+			compact();
+	}
+
+	private void checkVertex(int v) {
+		if (v < 0 || v >= numVertices)
+			throw new IndexOutOfBoundsException("vertex " + v + " not in 0.." + (numVertices - 1));
+	}
+
+	/**
+	 * Sorts every neighbor list and drops duplicate edges.
+	 */
+	private static CompactGraph normalize(CompactGraph graph) {
+		int n = graph.numVertices();
+		int[] offsets = new int[n + 1];
+		int[] targets = new int[graph.numEdges()];
+		int end = 0;
+		for (int v = 0; v < n; v++) {
+			int[] list = Arrays.copyOfRange(graph.targets, graph.offsets[v], graph.offsets[v + 1]);
+			Arrays.sort(list);
+			for (int i = 0; i < list.length; i++) {
+				if (i == 0 || list[i] != list[i - 1])
+					targets[end++] = list[i];
+			}
+			offsets[v + 1] = end;
+		}
+		return new CompactGraph(offsets, Arrays.copyOf(targets, end));
+	}
+
+	/**
+	 * One direction of the edges: a sorted base plus inserted and deleted
+	 * deltas.
+	 */
+	private static class Adjacency {
+		CompactGraph base;
+		int[][] added;
+		int[] addedCount;
+		int[] deletedCount;
+		Set<Long> deleted = new HashSet<Long>();
+		long pendingChanges;
+
+		Adjacency(CompactGraph base) {
+			this.base = base;
+			int n = base.numVertices();
+			this.added = new int[n][];
+			this.addedCount = new int[n];
+			this.deletedCount = new int[n];
+		}
+
+		int degree(int v) {
+			return base.degree(v) - deletedCount[v] + addedCount[v];
+		}
+
+		boolean inBase(int u, int v) {
+			return Arrays.binarySearch(base.targets, base.offsets[u], base.offsets[u + 1], v) >= 0;
+		}
+
+		int indexInAdded(int u, int v) {
+			for (int i = 0; i < addedCount[u]; i++) {
+				if (added[u][i] == v)
+					return i;
+			}
+			return -1;
+		}
+
+		boolean contains(int u, int v) {
+			if (inBase(u, v))
+				return deletedCount[u] == 0 || !deleted.contains(key(u, v));
+			return indexInAdded(u, v) >= 0;
+		}
+
+		boolean insert(int u, int v) {
+			if (inBase(u, v)) {
+				if (deletedCount[u] > 0 && deleted.remove(key(u, v))) {
+					deletedCount[u]--;
+					pendingChanges--;
+					return true;
+				}
+				return false;
+			}
+			if (indexInAdded(u, v) >= 0)
+				return false;
+			if (added[u] == null)
+				added[u] = new int[4];
+			else if (addedCount[u] == added[u].length)
+				added[u] = Arrays.copyOf(added[u], addedCount[u] * 2);
+			added[u][addedCount[u]++] = v;
+			pendingChanges++;
+			return true;
+		}
+
+		boolean delete(int u, int v) {
+			if (inBase(u, v)) {
+				if (deleted.add(key(u, v))) {
+					deletedCount[u]++;
+					pendingChanges++;
+					return true;
+				}
+				return false;
+			}
+			int i = indexInAdded(u, v);
+			if (i < 0)
+				return false;
+			added[u][i] = added[u][--addedCount[u]];
+			pendingChanges--;
+			return true;
+		}
+
+		int[] neighbors(int u) {
+			int from = base.offsets[u];
+			int to = base.offsets[u + 1];
+			int[] result = new int[degree(u)];
+			int count = 0;
+			if (deletedCount[u] == 0) {
+				System.arraycopy(base.targets, from, result, 0, to - from);
+				count = to - from;
+			} else {
+				for (int e = from; e < to; e++) {
+					if (!deleted.contains(key(u, base.targets[e])))
+						result[count++] = base.targets[e];
+				}
+			}
+			if (addedCount[u] > 0)
+				System.arraycopy(added[u], 0, result, count, addedCount[u]);
+			return result;
+		}
+
+		void compact() {
+			if (pendingChanges == 0 && deleted.isEmpty())
+				return;
+			int n = base.numVertices();
+			long total = (long) base.numEdges();
+			for (int u = 0; u < n; u++)
+				total += addedCount[u] - deletedCount[u];
+			int[] offsets = new int[n + 1];
+			int[] targets = new int[(int) total];
+			for (int u = 0; u < n; u++) {
+				int[] list = neighbors(u);
+				if (addedCount[u] > 0)
+					Arrays.sort(list);
+				System.arraycopy(list, 0, targets, offsets[u], list.length);
+				offsets[u + 1] = offsets[u] + list.length;
+			}
+			base = new CompactGraph(offsets, targets);
+			added = new int[n][];
+			addedCount = new int[n];
+			deletedCount = new int[n];
+			deleted = new HashSet<Long>();
+			pendingChanges = 0;
+		}
+
+		private static Long key(int u, int v) {
+			return Long.valueOf(((long) u << 32) | (v & 0xffffffffL));
+		}
+	}
+
+}
@@ -0,0 +1,307 @@
+package org.dataapproach.algorithm.graph.dynamic;
+
+import java.util.Arrays;
+
+import org.dataapproach.algorithm.graph.search.BreadthFirstSearch;
+
+/**
+ * BFS distances from one source that are kept up to date while a
+ * {@link DynamicGraph} changes, repairing only the vertices an update affects.
+ * 
+ * Insertions can only shorten distances. For every inserted edge (u, v) that
+ * gives v a shorter path, v is lowered and the improvement is pushed outwards
+ * in order of distance, stopping wherever it no longer improves anything.
+ * 
+ * Deletions can only lengthen distances, and only for vertices that lose their
+ * last shortest path parent. Starting from the targets of deleted edges, in
+ * order of distance, a vertex is marked affected when none of its in-neighbors
+ * one level up is still unaffected; the children of an affected vertex become
+ * candidates in turn. The affected vertices are then given new distances from
+ * their unaffected in-neighbors and settled with a unit weight Dijkstra that
+ * only enters affected vertices. Everything else keeps its distance.
+ * 
+ * Both repairs order their work with a binary heap of (distance, vertex)
+ * pairs packed into longs.
+ * 
+ * Queries may run on other threads while batches arrive. The repairs run
+ * inside the graph's write lock and the queries take its read lock, so a query
+ * sees the distances before or after a batch, never the -1 placeholders of a
+ * deletion repair in progress.
+ * 
+ * http://dl.acm.org/citation.cfm?id=229510 (Ramalingam and Reps, "On the
+ * computational complexity of dynamic graph problems")
+ * 
+ * @author sarath
+ *
+ */
+public class IncrementalBfs {
+
+	private final DynamicGraph graph;
+	private final int source;
+	private final int[] distance;
+	private final boolean[] affected;
+	private final LongHeap heap = new LongHeap();
+	private int[] affectedList = new int[16];
+	private int lastRepaired;
+
+	// Private so the repairs can only be called by the graph, under its write lock
+	private final DynamicGraph.Listener listener = new DynamicGraph.Listener() {
+		@Override
+		public void edgesInserted(int[] src, int[] dst, int count) {
+			repairInsertions(src, dst, count);
+		}
+
+		@Override
+		public void edgesDeleted(int[] src, int[] dst, int count) {
+			repairDeletions(src, dst, count);
+		}
+	};
+
+	public static void main(String[] args) {
+
+		// The same 7 vertex graph the search classes use, vertex i is node i + 1
+		int[] src = new int[] {0, 0, 0, 1, 1, 2, 2, 3, 3, 3, 4, 5};
+		int[] dst = new int[] {1, 3, 4, 2, 3, 3, 6, 4, 5, 6, 5, 6};
+		DynamicGraph graph = new DynamicGraph(7);
+		graph.addEdges(src, dst);
+		graph.addEdges(dst, src);
+
+		IncrementalBfs bfs = new IncrementalBfs(graph, 0);
+		System.out.println("Distances from 1: " + Arrays.toString(bfs.distances()));
+
+		graph.removeEdges(new int[] {0, 3, 3}, new int[] {3, 0, 6});
+		System.out.println("After deleting 1-4 and 4->7: " + Arrays.toString(bfs.distances())
+				+ ", repaired " + bfs.lastRepaired());
+
+		graph.addEdges(new int[] {0}, new int[] {6});
+		System.out.println("After inserting 1->7: " + Arrays.toString(bfs.distances())
+				+ ", repaired " + bfs.lastRepaired());
+
+		bfs.detach();
+
+	}
+
+	/**
+	 * Runs a full BFS from source and registers for updates of graph.
+	 * 
+	 * @param graph
+	 *            the graph to follow.
+	 * @param source
+	 *            the start vertex.
+	 */
+	public IncrementalBfs(DynamicGraph graph, int source) {
+		this.graph = graph;
+		this.source = source;
+		this.affected = new boolean[graph.numVertices()];
+		// No batch may land between the snapshot and the registration
+		graph.lock().writeLock().lock();
+		try {
+			this.distance = BreadthFirstSearch.distances(graph.snapshot(), source);
+			graph.addListener(listener);
+		} finally {
+			graph.lock().writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Stops following updates of the graph.
+	 */
+	public void detach() {
+		graph.removeListener(listener);
+	}
+
+	public int source() {
+		return source;
+	}
+
+	/**
+	 * @return the distance of v from the source, -1 if unreachable.
+	 */
+	public int distance(int v) {
+		graph.lock().readLock().lock();
+		try {
+			return distance[v];
+		} finally {
+			graph.lock().readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return a copy of the distances of all vertices.
+	 */
+	public int[] distances() {
+		graph.lock().readLock().lock();
+		try {
+			return distance.clone();
+		} finally {
+			graph.lock().readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return how many vertices changed distance in the last update.
+	 */
+	public int lastRepaired() {
+		graph.lock().readLock().lock();
+		try {
+			return lastRepaired;
+		} finally {
+			graph.lock().readLock().unlock();
+		}
+	}
+
+	/**
+	 * Lowers the distances that the inserted edges shorten.
+	 */
+	private void repairInsertions(int[] src, int[] dst, int count) {
+		lastRepaired = 0;
+		for (int i = 0; i < count; i++) {
+			int u = src[i];
+			int v = dst[i];
+			if (distance[u] >= 0 && (distance[v] < 0 || distance[u] + 1 < distance[v])) {
+				distance[v] = distance[u] + 1;
+				heap.push(distance[v], v);
+			}
+		}
+
+		while (!heap.isEmpty()) {
+			long top = heap.pop();
+			int d = (int) (top >>> 32);
+			int v = (int) top;
+			if (d != distance[v])
+				continue;
+			lastRepaired++;
+			for (int w : graph.neighbors(v)) {
+				if (distance[w] < 0 || d + 1 < distance[w]) {
+					distance[w] = d + 1;
+					heap.push(d + 1, w);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Raises the distances of the vertices that lost their last shortest path
+	 * parent with the deleted edges.
+	 */
+	private void repairDeletions(int[] src, int[] dst, int count) {
+		lastRepaired = 0;
+		for (int i = 0; i < count; i++) {
+			int u = src[i];
+			int v = dst[i];
+			if (v != source && distance[u] >= 0 && distance[v] == distance[u] + 1)
+				heap.push(distance[v], v);
+		}
+
+		// Find the vertices that lost all shortest path parents
+		int affectedCount = 0;
+		while (!heap.isEmpty()) {
+			long top = heap.pop();
+			int d = (int) (top >>> 32);
+			int v = (int) top;
+			if (affected[v] || !lostParents(v, d))
+				continue;
+			affected[v] = true;
+			if (affectedCount == affectedList.length)
+				affectedList = Arrays.copyOf(affectedList, affectedCount * 2);
+			affectedList[affectedCount++] = v;
+			for (int w : graph.neighbors(v)) {
+				if (!affected[w] && distance[w] == d + 1)
+					heap.push(d + 1, w);
+			}
+		}
+		lastRepaired = affectedCount;
+
+		// Seed the affected vertices from their unaffected in-neighbors
+		for (int i = 0; i < affectedCount; i++)
+			distance[affectedList[i]] = -1;
+		for (int i = 0; i < affectedCount; i++) {
+			int v = affectedList[i];
+			int best = -1;
+			for (int p : graph.inNeighbors(v)) {
+				if (!affected[p] && distance[p] >= 0 && (best < 0 || distance[p] + 1 < best))
+					best = distance[p] + 1;
+			}
+			if (best >= 0) {
+				distance[v] = best;
+				heap.push(best, v);
+			}
+		}
+
+		// Settle them in order of distance
+		while (!heap.isEmpty()) {
+			long top = heap.pop();
+			int d = (int) (top >>> 32);
+			int v = (int) top;
+			if (d != distance[v])
+				continue;
+			for (int w : graph.neighbors(v)) {
+				if (affected[w] && (distance[w] < 0 || d + 1 < distance[w])) {
+					distance[w] = d + 1;
+					heap.push(d + 1, w);
+				}
+			}
+		}
+
+		for (int i = 0; i < affectedCount; i++)
+			affected[affectedList[i]] = false;
+	}
+
+	/**
+	 * @return true if no unaffected in-neighbor of v is at distance d - 1.
+	 */
+	private boolean lostParents(int v, int d) {
+		for (int p : graph.inNeighbors(v)) {
+			if (!affected[p] && distance[p] == d - 1)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Binary min-heap of longs, used for (distance << 32 | vertex) pairs.
+	 */
+	private static class LongHeap {
+		private long[] heap = new long[16];
+		private int size;
+
+		boolean isEmpty() {
+			return size == 0;
+		}
+
+		void push(int d, int v) {
+			if (size == heap.length)
+				heap = Arrays.copyOf(heap, size * 2);
+			long value = ((long) d << 32) | v;
+			int i = size++;
+			while (i > 0) {
+				int parent = (i - 1) >>> 1;
+				if (heap[parent] <= value)
+					break;
+				heap[i] = heap[parent];
+				i = parent;
+			}
+			heap[i] = value;
+		}
+
+		long pop() {
+			long top = heap[0];
+			long last = heap[--size];
+			int i = 0;
+			while (true) {
+				int child = 2 * i + 1;
+				if (child >= size)
+					break;
+				if (child + 1 < size && heap[child + 1] < heap[child])
+					child++;
+				if (last <= heap[child])
+					break;
+				heap[i] = heap[child];
+				i = child;
+			}
+			heap[i] = last;
+			return top;
+		}
+	}
+
+}
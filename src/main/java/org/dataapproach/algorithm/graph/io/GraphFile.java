@@ -0,0 +1,118 @@
+package org.dataapproach.algorithm.graph.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.dataapproach.algorithm.graph.CompactGraph;
+
+/**
+ * Binary on-disk format for a graph in compressed sparse row form, and the
+ * writer for it. Files are read back with {@link MappedGraph}.
+ * 
+ * All values are little endian. The layout is
+ * 
+ * <pre>
+ * header   32 bytes
+ *   int    magic          'GRPH'
+ *   int    version        1
+ *   int    flags          bit 0 set when weights are present
+ *   int    reserved       0
+ *   long   numVertices
+ *   long   numEdges
+ * offsets  (numVertices + 1) longs, offsets[numVertices] == numEdges
+ * targets  numEdges ints
+ * weights  numEdges floats, only when flagged
+ * </pre>
+ * 
+ * Every section starts at a multiple of its element size, so a section can be
+ * mapped in chunks without an element ever straddling two chunks.
+ * 
+ * @author sarath
+ *
+ */
+public class GraphFile {
+
+	public static final int MAGIC = 0x47525048; // "GRPH"
+	public static final int VERSION = 1;
+	public static final int FLAG_WEIGHTED = 1;
+	public static final int HEADER_BYTES = 32;
+
+	private static final int BUFFER_BYTES = 1 << 20;
+
+	/**
+	 * Writes an unweighted graph.
+	 * 
+	 * @param path
+	 *            the file to create or overwrite.
+	 * @param graph
+	 *            the graph.
+	 * @throws IOException
+	 *             if the file cannot be written.
+	 */
+	public static void write(Path path, CompactGraph graph) throws IOException {
+		write(path, graph, null);
+	}
+
+	/**
+	 * Writes a graph with an optional weight per edge.
+	 * 
+	 * @param path
+	 *            the file to create or overwrite.
+	 * @param graph
+	 *            the graph.
+	 * @param weights
+	 *            the weight of every edge, indexed like graph.targets, or null.
+	 * @throws IOException
+	 *             if the file cannot be written.
+	 */
+	public static void write(Path path, CompactGraph graph, float[] weights)
+			throws IOException {
+		if (weights != null && weights.length != graph.numEdges())
+			throw new IllegalArgumentException("expected " + graph.numEdges()
+					+ " weights but got " + weights.length);
+
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES)
+					.order(ByteOrder.LITTLE_ENDIAN);
+
+			buffer.putInt(MAGIC);
+			buffer.putInt(VERSION);
+			buffer.putInt(weights != null ? FLAG_WEIGHTED : 0);
+			buffer.putInt(0);
+			buffer.putLong(graph.numVertices());
+			buffer.putLong(graph.numEdges());
+
+			for (int offset : graph.offsets) {
+				if (buffer.remaining() < 8)
+					drain(channel, buffer);
+				buffer.putLong(offset);
+			}
+			for (int target : graph.targets) {
+				if (buffer.remaining() < 4)
+					drain(channel, buffer);
+				buffer.putInt(target);
+			}
+			if (weights != null) {
+				for (float weight : weights) {
+					if (buffer.remaining() < 4)
+						drain(channel, buffer);
+					buffer.putFloat(weight);
+				}
+			}
+			drain(channel, buffer);
+		}
+	}
+
+	private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+
+}
@@ -0,0 +1,298 @@
+package org.dataapproach.algorithm.graph.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.dataapproach.algorithm.graph.CompactGraph;
+import org.dataapproach.algorithm.graph.search.GraphNode;
+import org.dataapproach.algorithm.metrics.TraversalProbe;
+
+/**
+ * A graph in the {@link GraphFile} format, memory mapped read only.
+ * 
+ * Opening a file only reads the 32 byte header and maps the offsets, targets
+ * and weights sections with FileChannel.map. Nothing is parsed or copied onto
+ * the heap: every neighbor lookup reads straight from the mapped pages and the
+ * operating system pages them in on first touch. Loading time therefore does
+ * not depend on the number of edges.
+ * 
+ * A single MappedByteBuffer cannot be larger than 2 GB, so every section is
+ * mapped as a sequence of 1 GB chunks and an element index is split into a
+ * chunk number and a position inside the chunk.
+ * 
+ * The traversals keep one bit per vertex for visited and an int queue or stack
+ * on the heap, and read the adjacency from the mapping.
+ * 
+ * @author sarath
+ *
+ */
+public class MappedGraph {
+
+	private static final int CHUNK_SHIFT = 30;
+	private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+
+	private final long numVertices;
+	private final long numEdges;
+	private final MappedByteBuffer[] offsets;
+	private final MappedByteBuffer[] targets;
+	private final MappedByteBuffer[] weights;
+
+	public static void main(String[] args) throws IOException {
+
+		GraphNode n1 = new GraphNode(1);
+		GraphNode n2 = new GraphNode(2);
+		GraphNode n3 = new GraphNode(3);
+		GraphNode n4 = new GraphNode(4);
+		GraphNode n5 = new GraphNode(5);
+		GraphNode n6 = new GraphNode(6);
+		GraphNode n7 = new GraphNode(7);
+
+		n1.neighbors = new GraphNode[] {n2, n4, n5};
+		n2.neighbors = new GraphNode[] {n1, n3, n4};
+		n3.neighbors = new GraphNode[] {n2, n4, n7};
+		n4.neighbors = new GraphNode[] {n1, n2, n3, n5, n6, n7};
+		n5.neighbors = new GraphNode[] {n1, n4, n6};
+		n6.neighbors = new GraphNode[] {n4, n5, n7};
+		n7.neighbors = new GraphNode[] {n3, n4, n6};
+
+		GraphNode[] nodes = new GraphNode[] {n1, n2, n3, n4, n5, n6, n7};
+
+		Path file = Files.createTempFile("graph", ".bin");
+		try {
+			GraphFile.write(file, CompactGraph.fromGraphNodes(nodes));
+			MappedGraph graph = MappedGraph.open(file);
+
+			System.out.println("BFS");
+			for (int v : graph.breadthFirst(0))
+				System.out.println(nodes[v].value);
+
+			System.out.println("DFS");
+			for (int v : graph.depthFirst(0))
+				System.out.println(nodes[v].value);
+		} finally {
+			Files.delete(file);
+		}
+
+	}
+
+	private MappedGraph(long numVertices, long numEdges, MappedByteBuffer[] offsets,
+			MappedByteBuffer[] targets, MappedByteBuffer[] weights) {
+		this.numVertices = numVertices;
+		this.numEdges = numEdges;
+		this.offsets = offsets;
+		this.targets = targets;
+		this.weights = weights;
+	}
+
+	/**
+	 * Maps a graph file. The channel is closed again before returning; the
+	 * mapping stays valid until the MappedGraph is garbage collected.
+	 * 
+	 * @param path
+	 *            a file written by {@link GraphFile}.
+	 * @return the mapped graph.
+	 * @throws IOException
+	 *             if the file cannot be read or is not a valid graph file.
+	 */
+	public static MappedGraph open(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(GraphFile.HEADER_BYTES)
+					.order(ByteOrder.LITTLE_ENDIAN);
+			while (header.hasRemaining()) {
+				if (channel.read(header, header.position()) < 0)
+					throw new IOException(path + ": truncated header");
+			}
+			header.flip();
+
+			if (header.getInt() != GraphFile.MAGIC)
+				throw new IOException(path + ": not a graph file");
+			int version = header.getInt();
+			if (version != GraphFile.VERSION)
+				throw new IOException(path + ": unsupported version " + version);
+			boolean weighted = (header.getInt() & GraphFile.FLAG_WEIGHTED) != 0;
+			header.getInt();
+			long numVertices = header.getLong();
+			long numEdges = header.getLong();
+
+			if (numVertices < 0 || numVertices >= Integer.MAX_VALUE
+					|| numEdges < 0)
+				throw new IOException(path + ": bad header");
+
+			long offsetsStart = GraphFile.HEADER_BYTES;
+			long targetsStart = offsetsStart + 8 * (numVertices + 1);
+			long weightsStart = targetsStart + 4 * numEdges;
+			long end = weighted ? weightsStart + 4 * numEdges : weightsStart;
+			if (channel.size() != end)
+				throw new IOException(path + ": expected " + end + " bytes but found "
+						+ channel.size());
+
+			return new MappedGraph(numVertices, numEdges,
+					map(channel, offsetsStart, targetsStart - offsetsStart),
+					map(channel, targetsStart, weightsStart - targetsStart),
+					weighted ? map(channel, weightsStart, end - weightsStart) : null);
+		}
+	}
+
+	private static MappedByteBuffer[] map(FileChannel channel, long start, long length)
+			throws IOException {
+		int count = (int) ((length + CHUNK_MASK) >>> CHUNK_SHIFT);
+		MappedByteBuffer[] chunks = new MappedByteBuffer[count];
+		for (int i = 0; i < count; i++) {
+			long position = (long) i << CHUNK_SHIFT;
+			long size = Math.min(CHUNK_MASK + 1, length - position);
+			chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, start + position, size);
+			chunks[i].order(ByteOrder.LITTLE_ENDIAN);
+		}
+		return chunks;
+	}
+
+	public int numVertices() {
+		return (int) numVertices;
+	}
+
+	public long numEdges() {
+		return numEdges;
+	}
+
+	public boolean isWeighted() {
+		return weights != null;
+	}
+
+	/**
+	 * @return the index of the first edge of v; the edges of v are
+	 *         offset(v) .. offset(v + 1) - 1.
+	 */
+	public long offset(int v) {
+		long position = (long) v << 3;
+		return offsets[(int) (position >>> CHUNK_SHIFT)].getLong((int) (position & CHUNK_MASK));
+	}
+
+	/**
+	 * @return the target vertex of edge e.
+	 */
+	public int target(long e) {
+		long position = e << 2;
+		return targets[(int) (position >>> CHUNK_SHIFT)].getInt((int) (position & CHUNK_MASK));
+	}
+
+	/**
+	 * @return the weight of edge e.
+	 */
+	public float weight(long e) {
+		if (weights == null)
+			throw new IllegalStateException("graph has no weights");
+		long position = e << 2;
+		return weights[(int) (position >>> CHUNK_SHIFT)].getFloat((int) (position & CHUNK_MASK));
+	}
+
+	public long degree(int v) {
+		return offset(v + 1) - offset(v);
+	}
+
+	/**
+	 * Breadth first traversal from source, read directly from the mapping.
+	 * 
+	 * @param source
+	 *            the start vertex.
+	 * @return the reached vertices in visit order.
+	 */
+	public int[] breadthFirst(int source) {
+		TraversalProbe.begin("MappedGraph.breadthFirst");
+		try {
+			long[] visited = new long[(int) ((numVertices + 63) >>> 6)];
+			int[] queue = new int[(int) numVertices];
+			int head = 0;
+			int tail = 0;
+			int levelEnd = 0;
+
+			visited[source >>> 6] |= 1L << source;
+			queue[tail++] = source;
+			while (head < tail) {
+				if (head == levelEnd) {
+					levelEnd = tail;
+					TraversalProbe.level(tail - head);
+				}
+				int v = queue[head++];
+				long end = offset(v + 1);
+				TraversalProbe.vertex();
+				TraversalProbe.edges(end - offset(v));
+				for (long e = offset(v); e < end; e++) {
+					int w = target(e);
+					if ((visited[w >>> 6] & (1L << w)) == 0) {
+						visited[w >>> 6] |= 1L << w;
+						queue[tail++] = w;
+					}
+				}
+			}
+			return trim(queue, tail);
+		} finally {
+			TraversalProbe.end();
+		}
+	}
+
+	/**
+	 * Depth first traversal from source, read directly from the mapping. Visits
+	 * vertices in the same order as DepthFirstSearch.DFS: the neighbors of a
+	 * vertex are explored first to last.
+	 * 
+	 * @param source
+	 *            the start vertex.
+	 * @return the reached vertices in visit order.
+	 */
+	public int[] depthFirst(int source) {
+		TraversalProbe.begin("MappedGraph.depthFirst");
+		try {
+			int n = (int) numVertices;
+			long[] visited = new long[(n + 63) >>> 6];
+			int[] order = new int[n];
+			int count = 0;
+
+			// Explicit stack of (vertex, next edge) pairs
+			int[] stack = new int[n];
+			long[] nextEdge = new long[n];
+			int top = 0;
+
+			visited[source >>> 6] |= 1L << source;
+			order[count++] = source;
+			TraversalProbe.vertex();
+			stack[top] = source;
+			nextEdge[top++] = offset(source);
+			while (top > 0) {
+				int v = stack[top - 1];
+				long e = nextEdge[top - 1];
+				if (e == offset(v + 1)) {
+					top--;
+					continue;
+				}
+				nextEdge[top - 1] = e + 1;
+				TraversalProbe.edge();
+				int w = target(e);
+				if ((visited[w >>> 6] & (1L << w)) == 0) {
+					visited[w >>> 6] |= 1L << w;
+					order[count++] = w;
+					TraversalProbe.vertex();
+					stack[top] = w;
+					nextEdge[top++] = offset(w);
+				}
+			}
+			return trim(order, count);
+		} finally {
+			TraversalProbe.end();
+		}
+	}
+
+	private static int[] trim(int[] a, int length) {
+		if (length == a.length)
+			return a;
+		int[] trimmed = new int[length];
+		System.arraycopy(a, 0, trimmed, 0, length);
+		return trimmed;
+	}
+
+}
@@ -0,0 +1,27 @@
+package org.dataapproach.algorithm.graph.order;
+
+import org.dataapproach.algorithm.graph.CompactGraph;
+
+/**
+ * A graph whose vertices were relabelled by {@link VertexReordering}, together
+ * with the maps between the new and the original ids.
+ * 
+ * @author sarath
+ *
+ */
+public class ReorderedGraph {
+
+	/** The permuted graph, in new ids. */
+	public final CompactGraph graph;
+	/** newToOld[v] is the original id of new vertex v. */
+	public final int[] newToOld;
+	/** oldToNew[v] is the new id of original vertex v. */
+	public final int[] oldToNew;
+
+	public ReorderedGraph(CompactGraph graph, int[] newToOld, int[] oldToNew) {
+		this.graph = graph;
+		this.newToOld = newToOld;
+		this.oldToNew = oldToNew;
+	}
+
+}
@@ -0,0 +1,241 @@
+package org.dataapproach.algorithm.graph.order;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.dataapproach.algorithm.graph.CompactGraph;
+import org.dataapproach.algorithm.graph.search.GraphNode;
+
+/**
+ * Topological sort of a directed acyclic graph with Kahn's algorithm.
+ * 
+ * Count the incoming edges of every vertex and put the vertices without any
+ * into a queue. Repeatedly take a vertex from the queue, append it to the
+ * order and remove its outgoing edges; a target whose count drops to zero joins
+ * the queue. If the queue runs dry before every vertex is ordered, the rest
+ * lies on or behind a cycle.
+ * 
+ * The queue is a plain int array: every vertex enters it exactly once, so it
+ * never has to grow and the order is the queue itself.
+ * 
+ * The parallel variant processes the graph level by level. All vertices of
+ * the current frontier have no remaining predecessors, so their edges can be
+ * removed concurrently with atomic decrements, and the vertices that reach zero
+ * form the next frontier. Vertices of the same level are independent, which is
+ * also what a scheduler wants to know.
+ * 
+ * https://en.wikipedia.org/wiki/Topological_sorting#Kahn's_algorithm
+ * 
+ * @author sarath
+ *
+ */
+public class TopologicalSort {
+
+	/**
+	 * Frontier ranges smaller than this are processed on the current thread.
+	 */
+	private static final int THRESHOLD = 1 << 12;
+
+	public static void main(String[] args) {
+
+		GraphNode n1 = new GraphNode(1);
+		GraphNode n2 = new GraphNode(2);
+		GraphNode n3 = new GraphNode(3);
+		GraphNode n4 = new GraphNode(4);
+		GraphNode n5 = new GraphNode(5);
+		GraphNode n6 = new GraphNode(6);
+		GraphNode n7 = new GraphNode(7);
+
+		n1.neighbors = new GraphNode[] {n2, n4};
+		n2.neighbors = new GraphNode[] {n3};
+		n3.neighbors = new GraphNode[] {n7};
+		n4.neighbors = new GraphNode[] {n3, n5, n6};
+		n5.neighbors = new GraphNode[] {n6};
+		n6.neighbors = new GraphNode[] {n7};
+		n7.neighbors = new GraphNode[] {};
+
+		GraphNode[] nodes = new GraphNode[] {n1, n2, n3, n4, n5, n6, n7};
+		CompactGraph graph = CompactGraph.fromGraphNodes(nodes);
+
+		for (int v : sort(graph)) {
+			System.out.println(nodes[v].value);
+		}
+
+		int[] level = levels(graph);
+		for (int i = 0; i < nodes.length; i++) {
+			System.out.println(nodes[i].value + " -> level " + level[i]);
+		}
+
+	}
+
+	/**
+	 * Topological order of a directed acyclic graph.
+	 * 
+	 * @param graph
+	 *            the graph.
+	 * @return the vertices such that every edge goes from an earlier to a later
+	 *         vertex.
+	 * @throws IllegalArgumentException
+	 *             if the graph has a cycle.
+	 */
+	public static int[] sort(CompactGraph graph) {
+		int n = graph.numVertices();
+		int[] offsets = graph.offsets;
+		int[] targets = graph.targets;
+
+		int[] inDegree = inDegrees(graph);
+		int[] queue = new int[n];
+		int head = 0;
+		int tail = 0;
+		for (int v = 0; v < n; v++) {
+			if (inDegree[v] == 0)
+				queue[tail++] = v;
+		}
+
+		while (head < tail) {
+			int v = queue[head++];
+			for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+				int w = targets[e];
+				if (--inDegree[w] == 0)
+					queue[tail++] = w;
+			}
+		}
+
+		if (tail < n)
+			throw new IllegalArgumentException("graph has a cycle, "
+					+ (n - tail) + " vertices could not be ordered");
+		return queue;
+	}
+
+	/**
+	 * @param graph
+	 *            the graph.
+	 * @return true if the graph has no directed cycle.
+	 */
+	public static boolean isAcyclic(CompactGraph graph) {
+		try {
+			sort(graph);
+			return true;
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Topological order computed level by level in parallel. The result lists
+	 * all vertices of level 0 first, then level 1 and so on; the order inside
+	 * one level is not deterministic.
+	 * 
+	 * @param graph
+	 *            the graph.
+	 * @return the vertices in topological order.
+	 * @throws IllegalArgumentException
+	 *             if the graph has a cycle.
+	 */
+	public static int[] parallelSort(CompactGraph graph) {
+		return parallel(graph, null);
+	}
+
+	/**
+	 * The level of every vertex: 0 for vertices without predecessors, otherwise
+	 * one more than the highest level of a predecessor. Vertices on the same
+	 * level do not depend on each other.
+	 * 
+	 * @param graph
+	 *            the graph.
+	 * @return the level of every vertex.
+	 * @throws IllegalArgumentException
+	 *             if the graph has a cycle.
+	 */
+	public static int[] levels(CompactGraph graph) {
+		int[] level = new int[graph.numVertices()];
+		parallel(graph, level);
+		return level;
+	}
+
+	private static int[] parallel(CompactGraph graph, int[] level) {
+		int n = graph.numVertices();
+		int[] counts = inDegrees(graph);
+		AtomicIntegerArray inDegree = new AtomicIntegerArray(counts);
+
+		// order[frontierStart .. frontierEnd) is the current level, new
+		// vertices are appended at the cursor.
+		int[] order = new int[n];
+		int frontierEnd = 0;
+		for (int v = 0; v < n; v++) {
+			if (counts[v] == 0)
+				order[frontierEnd++] = v;
+		}
+		AtomicInteger cursor = new AtomicInteger(frontierEnd);
+
+		int frontierStart = 0;
+		int depth = 0;
+		while (frontierStart < frontierEnd) {
+			if (level != null) {
+				for (int i = frontierStart; i < frontierEnd; i++)
+					level[order[i]] = depth;
+			}
+			ForkJoinPool.commonPool().invoke(new LevelTask(graph, inDegree,
+					order, cursor, frontierStart, frontierEnd));
+			frontierStart = frontierEnd;
+			frontierEnd = cursor.get();
+			depth++;
+		}
+
+		if (frontierEnd < n)
+			throw new IllegalArgumentException("graph has a cycle, "
+					+ (n - frontierEnd) + " vertices could not be ordered");
+		return order;
+	}
+
+	private static int[] inDegrees(CompactGraph graph) {
+		int[] inDegree = new int[graph.numVertices()];
+		for (int w : graph.targets)
+			inDegree[w]++;
+		return inDegree;
+	}
+
+	private static class LevelTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final CompactGraph graph;
+		private final AtomicIntegerArray inDegree;
+		private final int[] order;
+		private final AtomicInteger cursor;
+		private final int low;
+		private final int high;
+
+		LevelTask(CompactGraph graph, AtomicIntegerArray inDegree, int[] order,
+				AtomicInteger cursor, int low, int high) {
+			this.graph = graph;
+			this.inDegree = inDegree;
+			this.order = order;
+			this.cursor = cursor;
+			this.low = low;
+			this.high = high;
+		}
+
+		@Override
+		protected void compute() {
+			if (high - low <= THRESHOLD) {
+				int[] offsets = graph.offsets;
+				int[] targets = graph.targets;
+				for (int i = low; i < high; i++) {
+					int v = order[i];
+					for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+						int w = targets[e];
+						if (inDegree.decrementAndGet(w) == 0)
+							order[cursor.getAndIncrement()] = w;
+					}
+				}
+			} else {
+				int middle = (low + high) >>> 1;
+				invokeAll(new LevelTask(graph, inDegree, order, cursor, low, middle),
+						new LevelTask(graph, inDegree, order, cursor, middle, high));
+			}
+		}
+	}
+
+}
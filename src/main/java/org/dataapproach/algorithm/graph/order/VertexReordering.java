@@ -0,0 +1,269 @@
+package org.dataapproach.algorithm.graph.order;
+
+import java.util.Arrays;
+
+import org.dataapproach.algorithm.graph.CompactGraph;
+import org.dataapproach.algorithm.graph.search.GraphNode;
+
+/**
+ * Vertex reordering passes that improve the memory locality of traversals.
+ * 
+ * A traversal touches the neighbor list and the per-vertex state (visited,
+ * distance, ...) of every vertex it reaches. When neighbors have ids close to
+ * each other those accesses fall into the same cache lines and pages; with
+ * arbitrary ids almost every access is a cache miss. Relabelling the vertices
+ * once after loading fixes that for every later traversal.
+ * 
+ * Degree order puts the high degree vertices first, so the most frequently
+ * touched state is packed together. Hub clustering does the same but keeps the
+ * original order within hubs and within the rest, which preserves any locality
+ * the input already had. BFS order numbers vertices in the order a breadth
+ * first search reaches them, so a vertex and its neighbors get nearby ids.
+ * Reverse Cuthill-McKee is BFS order starting from a low degree vertex and
+ * visiting neighbors by increasing degree, reversed at the end; it is the
+ * classic bandwidth reduction for sparse matrices.
+ * 
+ * The passes read the out-neighbors; for undirected graphs stored with both
+ * edge directions that is the full adjacency.
+ * 
+ * https://en.wikipedia.org/wiki/Cuthill%E2%80%93McKee_algorithm
+ * 
+ * @author sarath
+ *
+ */
+public class VertexReordering {
+
+	public static void main(String[] args) {
+
+		GraphNode n1 = new GraphNode(1);
+		GraphNode n2 = new GraphNode(2);
+		GraphNode n3 = new GraphNode(3);
+		GraphNode n4 = new GraphNode(4);
+		GraphNode n5 = new GraphNode(5);
+		GraphNode n6 = new GraphNode(6);
+		GraphNode n7 = new GraphNode(7);
+
+		n1.neighbors = new GraphNode[] {n2, n4, n5};
+		n2.neighbors = new GraphNode[] {n1, n3, n4};
+		n3.neighbors = new GraphNode[] {n2, n4, n7};
+		n4.neighbors = new GraphNode[] {n1, n2, n3, n5, n6, n7};
+		n5.neighbors = new GraphNode[] {n1, n4, n6};
+		n6.neighbors = new GraphNode[] {n4, n5, n7};
+		n7.neighbors = new GraphNode[] {n3, n4, n6};
+
+		GraphNode[] nodes = new GraphNode[] {n7, n1, n5, n3, n6, n2, n4};
+		CompactGraph graph = CompactGraph.fromGraphNodes(nodes);
+
+		System.out.printf("%-22s gap %.3f%n", "original", averageNeighborGap(graph));
+		print("degree", nodes, byDegree(graph));
+		print("hub clustering", nodes, hubClustering(graph));
+		print("bfs", nodes, byBfs(graph));
+		print("reverse cuthill-mckee", nodes, reverseCuthillMcKee(graph));
+
+	}
+
+	private static void print(String name, GraphNode[] nodes, ReorderedGraph reordered) {
+		StringBuilder order = new StringBuilder();
+		for (int v : reordered.newToOld)
+			order.append(nodes[v].value).append(' ');
+		System.out.printf("%-22s gap %.3f  order %s%n", name,
+				averageNeighborGap(reordered.graph), order);
+	}
+
+	/**
+	 * Orders vertices by decreasing out-degree. Vertices of equal degree keep
+	 * their original relative order.
+	 * 
+	 * @param graph
+	 *            the graph.
+	 * @return the relabelled graph.
+	 */
+	public static ReorderedGraph byDegree(CompactGraph graph) {
+		int n = graph.numVertices();
+		int maxDegree = 0;
+		for (int v = 0; v < n; v++)
+			maxDegree = Math.max(maxDegree, graph.degree(v));
+
+		// Counting sort on degree, highest degree bucket first
+		int[] start = new int[maxDegree + 2];
+		for (int v = 0; v < n; v++)
+			start[maxDegree - graph.degree(v) + 1]++;
+		for (int d = 0; d <= maxDegree; d++)
+			start[d + 1] += start[d];
+
+		int[] newToOld = new int[n];
+		for (int v = 0; v < n; v++)
+			newToOld[start[maxDegree - graph.degree(v)]++] = v;
+		return relabel(graph, newToOld);
+	}
+
+	/**
+	 * Moves the hubs, vertices with more than the average out-degree, to the
+	 * front. Both groups keep their original relative order.
+	 * 
+	 * @param graph
+	 *            the graph.
+	 * @return the relabelled graph.
+	 */
+	public static ReorderedGraph hubClustering(CompactGraph graph) {
+		int n = graph.numVertices();
+		double average = n == 0 ? 0 : (double) graph.numEdges() / n;
+		int[] newToOld = new int[n];
+		int next = 0;
+		for (int v = 0; v < n; v++) {
+			if (graph.degree(v) > average)
+				newToOld[next++] = v;
+		}
+		for (int v = 0; v < n; v++) {
+			if (graph.degree(v) <= average)
+				newToOld[next++] = v;
+		}
+		return relabel(graph, newToOld);
+	}
+
+	/**
+	 * Numbers vertices in breadth first order. Every unreached vertex, taken in
+	 * original id order, starts a new search, so all vertices are numbered.
+	 * 
+	 * @param graph
+	 *            the graph.
+	 * @return the relabelled graph.
+	 */
+	public static ReorderedGraph byBfs(CompactGraph graph) {
+		int n = graph.numVertices();
+		int[] order = new int[n];
+		boolean[] visited = new boolean[n];
+		int tail = 0;
+		for (int root = 0; root < n; root++) {
+			if (visited[root])
+				continue;
+			visited[root] = true;
+			int head = tail;
+			order[tail++] = root;
+			while (head < tail) {
+				int v = order[head++];
+				for (int e = graph.offsets[v]; e < graph.offsets[v + 1]; e++) {
+					int w = graph.targets[e];
+					if (!visited[w]) {
+						visited[w] = true;
+						order[tail++] = w;
+					}
+				}
+			}
+		}
+		return relabel(graph, order);
+	}
+
+	/**
+	 * Reverse Cuthill-McKee order. Each component is searched breadth first
+	 * from its lowest degree vertex, visiting the neighbors of a vertex by
+	 * increasing degree; the resulting order is reversed.
+	 * 
+	 * @param graph
+	 *            the graph.
+	 * @return the relabelled graph.
+	 */
+	public static ReorderedGraph reverseCuthillMcKee(CompactGraph graph) {
+		int n = graph.numVertices();
+
+		// Candidate roots by increasing degree
+		long[] byDegree = new long[n];
+		for (int v = 0; v < n; v++)
+			byDegree[v] = ((long) graph.degree(v) << 32) | v;
+		Arrays.sort(byDegree);
+
+		int[] order = new int[n];
+		boolean[] visited = new boolean[n];
+		long[] neighbors = new long[16];
+		int tail = 0;
+		for (long candidate : byDegree) {
+			int root = (int) candidate;
+			if (visited[root])
+				continue;
+			visited[root] = true;
+			int head = tail;
+			order[tail++] = root;
+			while (head < tail) {
+				int v = order[head++];
+				int count = 0;
+				for (int e = graph.offsets[v]; e < graph.offsets[v + 1]; e++) {
+					int w = graph.targets[e];
+					if (!visited[w]) {
+						visited[w] = true;
+						if (count == neighbors.length)
+							neighbors = Arrays.copyOf(neighbors, count * 2);
+						neighbors[count++] = ((long) graph.degree(w) << 32) | w;
+					}
+				}
+				Arrays.sort(neighbors, 0, count);
+				for (int i = 0; i < count; i++)
+					order[tail++] = (int) neighbors[i];
+			}
+		}
+
+		for (int i = 0, j = n - 1; i < j; i++, j--) {
+			int tmp = order[i];
+			order[i] = order[j];
+			order[j] = tmp;
+		}
+		return relabel(graph, order);
+	}
+
+	/**
+	 * Applies a permutation to a graph. Neighbor lists of the result are sorted
+	 * by new id.
+	 * 
+	 * @param graph
+	 *            the graph.
+	 * @param newToOld
+	 *            newToOld[v] is the original vertex that becomes vertex v.
+	 * @return the relabelled graph with both id maps.
+	 */
+	public static ReorderedGraph relabel(CompactGraph graph, int[] newToOld) {
+		int n = graph.numVertices();
+		if (newToOld.length != n)
+			throw new IllegalArgumentException("permutation has " + newToOld.length
+					+ " entries for " + n + " vertices");
+		int[] oldToNew = new int[n];
+		Arrays.fill(oldToNew, -1);
+		for (int v = 0; v < n; v++) {
+			if (oldToNew[newToOld[v]] != -1)
+				throw new IllegalArgumentException("vertex " + newToOld[v]
+						+ " appears twice in the permutation");
+			oldToNew[newToOld[v]] = v;
+		}
+
+		int[] offsets = new int[n + 1];
+		int[] targets = new int[graph.numEdges()];
+		for (int v = 0; v < n; v++) {
+			int old = newToOld[v];
+			int start = offsets[v];
+			int end = start;
+			for (int e = graph.offsets[old]; e < graph.offsets[old + 1]; e++)
+				targets[end++] = oldToNew[graph.targets[e]];
+			Arrays.sort(targets, start, end);
+			offsets[v + 1] = end;
+		}
+		return new ReorderedGraph(new CompactGraph(offsets, targets), newToOld, oldToNew);
+	}
+
+	/**
+	 * Locality metric: the average of |v - w| over all edges (v, w). Lower
+	 * means neighbors are closer together in memory.
+	 * 
+	 * @param graph
+	 *            the graph.
+	 * @return the average neighbor id gap, 0 for a graph without edges.
+	 */
+	public static double averageNeighborGap(CompactGraph graph) {
+		if (graph.numEdges() == 0)
+			return 0;
+		long total = 0;
+		for (int v = 0; v < graph.numVertices(); v++) {
+			for (int e = graph.offsets[v]; e < graph.offsets[v + 1]; e++)
+				total += Math.abs(v - graph.targets[e]);
+		}
+		return (double) total / graph.numEdges();
+	}
+
+}
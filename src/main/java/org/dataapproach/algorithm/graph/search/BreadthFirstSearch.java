@@ -1,8 +1,12 @@
 package org.dataapproach.algorithm.graph.search;
 
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.Queue;
 
+import org.dataapproach.algorithm.graph.CompactGraph;
+import org.dataapproach.algorithm.metrics.TraversalProbe;
+
 
 /**
  * In Non recursive BFS - Queue makes it possible to traverse through graph across.
@@ -41,26 +45,125 @@ public class BreadthFirstSearch {
 	
 	public static void BFS(GraphNode node) {
 		 
-	    Queue<GraphNode> queue = new LinkedList<GraphNode>();
-	    node.visited = true;
-	    queue.add(node);
+	    TraversalProbe.begin("BreadthFirstSearch");
+	    try {
+	        Queue<GraphNode> queue = new LinkedList<GraphNode>();
+	        node.visited = true;
+	        queue.add(node);
 	 
-	    System.out.println(node.value);
+	        System.out.println(node.value);
 	 
-	    while(!queue.isEmpty()) {
-	        GraphNode v = queue.poll();
-	        for(GraphNode w : v.neighbors) {
-	            if(!w.visited) {
-	                System.out.println(w.value);
-	                w.visited = true;
-	                queue.add(w);
+	        int levelRemaining = 0;
+	        while(!queue.isEmpty()) {
+	            if(levelRemaining-- == 0) {
+	                levelRemaining = queue.size() - 1;
+	                TraversalProbe.level(queue.size());
+	            }
+	            GraphNode v = queue.poll();
+	            TraversalProbe.vertex();
+	            TraversalProbe.edges(v.neighbors.length);
+	            for(GraphNode w : v.neighbors) {
+	                if(!w.visited) {
+	                    System.out.println(w.value);
+	                    w.visited = true;
+	                    queue.add(w);
+	                }
 	            }
 	        }
+	    } finally {
+	        TraversalProbe.end();
 	    }
 	 
 	}
 
-	
+	/**
+	 * BFS over a CompactGraph that records the number of edges from the source
+	 * to every vertex. The queue is an int array, as every vertex is added at
+	 * most once.
+	 * 
+	 * @param graph
+	 *            the graph.
+	 * @param source
+	 *            the start vertex.
+	 * @return the distance of every vertex from source, -1 if unreachable.
+	 */
+	public static int[] distances(CompactGraph graph, int source) {
+		int[] distance = new int[graph.numVertices()];
+		TraversalProbe.begin("BreadthFirstSearch.distances");
+		try {
+			Arrays.fill(distance, -1);
+			int[] queue = new int[graph.numVertices()];
+			int head = 0;
+			int tail = 0;
+			int levelEnd = 0;
+
+			distance[source] = 0;
+			queue[tail++] = source;
+			while (head < tail) {
+				if (head == levelEnd) {
+					levelEnd = tail;
+					TraversalProbe.level(tail - head);
+				}
+				int v = queue[head++];
+				TraversalProbe.vertex();
+				TraversalProbe.edges(graph.offsets[v + 1] - graph.offsets[v]);
+				for (int e = graph.offsets[v]; e < graph.offsets[v + 1]; e++) {
+					int w = graph.targets[e];
+					if (distance[w] == -1) {
+						distance[w] = distance[v] + 1;
+						queue[tail++] = w;
+					}
+				}
+			}
+		} finally {
+			TraversalProbe.end();
+		}
+		return distance;
+	}
+
+	/**
+	 * BFS over a CompactGraph that only records which vertices are reachable,
+	 * one bit per vertex.
+	 * 
+	 * @param graph
+	 *            the graph.
+	 * @param source
+	 *            the start vertex.
+	 * @return a bit set, bit v is set if v is reachable from source.
+	 */
+	public static long[] reachable(CompactGraph graph, int source) {
+		long[] reached = new long[(graph.numVertices() + 63) >>> 6];
+		TraversalProbe.begin("BreadthFirstSearch.reachable");
+		try {
+			int[] queue = new int[graph.numVertices()];
+			int head = 0;
+			int tail = 0;
+			int levelEnd = 0;
+
+			reached[source >>> 6] |= 1L << source;
+			queue[tail++] = source;
+			while (head < tail) {
+				if (head == levelEnd) {
+					levelEnd = tail;
+					TraversalProbe.level(tail - head);
+				}
+				int v = queue[head++];
+				TraversalProbe.vertex();
+				TraversalProbe.edges(graph.offsets[v + 1] - graph.offsets[v]);
+				for (int e = graph.offsets[v]; e < graph.offsets[v + 1]; e++) {
+					int w = graph.targets[e];
+					if ((reached[w >>> 6] & (1L << w)) == 0) {
+						reached[w >>> 6] |= 1L << w;
+						queue[tail++] = w;
+					}
+				}
+			}
+		} finally {
+			TraversalProbe.end();
+		}
+		return reached;
+	}
+
 }
 
 
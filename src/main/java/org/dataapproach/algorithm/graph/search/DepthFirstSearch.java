@@ -2,6 +2,8 @@ package org.dataapproach.algorithm.graph.search;
 
 import java.util.Stack;
 
+import org.dataapproach.algorithm.metrics.TraversalProbe;
+
 /**
  * In Non recursive DFS - Stack makes it possible to traverse through graph to bottom.
  * 
@@ -36,18 +38,25 @@ public class DepthFirstSearch {
 	
 	public static void DFS(GraphNode node) {
 		 
-	    Stack<GraphNode> stack = new Stack<GraphNode>();
-	    stack.push(node);
+	    TraversalProbe.begin("DepthFirstSearch");
+	    try {
+	        Stack<GraphNode> stack = new Stack<GraphNode>();
+	        stack.push(node);
 	 
-	    while(!stack.isEmpty()) {
-	        GraphNode v = stack.pop();
-	        if(!v.visited) {
-	            System.out.println(v.value);
-	            v.visited = true;
-	            for(int i = v.neighbors.length - 1; i >= 0; i--) {
-	                stack.push(v.neighbors[i]);
+	        while(!stack.isEmpty()) {
+	            GraphNode v = stack.pop();
+	            if(!v.visited) {
+	                System.out.println(v.value);
+	                v.visited = true;
+	                TraversalProbe.vertex();
+	                TraversalProbe.edges(v.neighbors.length);
+	                for(int i = v.neighbors.length - 1; i >= 0; i--) {
+	                    stack.push(v.neighbors[i]);
+	                }
 	            }
 	        }
+	    } finally {
+	        TraversalProbe.end();
 	    }
 	 
 	}
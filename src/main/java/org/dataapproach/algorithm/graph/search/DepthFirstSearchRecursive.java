@@ -1,5 +1,7 @@
 package org.dataapproach.algorithm.graph.search;
 
+import org.dataapproach.algorithm.metrics.TraversalProbe;
+
 /**
  * 
  * https://blog.nraboy.com/2015/04/various-graph-search-algorithms-using-java/
@@ -32,11 +34,22 @@ public class DepthFirstSearchRecursive {
     }
 	
 	public static void DFS(GraphNode node) {
+	    TraversalProbe.begin("DepthFirstSearchRecursive");
+	    try {
+	        visit(node);
+	    } finally {
+	        TraversalProbe.end();
+	    }
+	}
+	
+	private static void visit(GraphNode node) {
 	    System.out.println(node.value);
 	    node.visited = true;
+	    TraversalProbe.vertex();
+	    TraversalProbe.edges(node.neighbors.length);
 	    for(GraphNode w : node.neighbors) {
 	        if(!w.visited) {
-	            DFS(w);
+	            visit(w);
 	        }
 	    }
 	}
@@ -0,0 +1,61 @@
+package org.dataapproach.algorithm.metrics;
+
+/**
+ * Where the probes report single calls, next to the JMX totals.
+ *
+ * The flight recorder implementation, JfrEvents, is compiled by the "jfr"
+ * maven profile on JDK 11 or newer, as jdk.jfr is not part of the Java 8 API.
+ * {@link Metrics} loads it by name and uses {@link NoEvents} when it is
+ * missing, so the probes keep working with JMX alone.
+ *
+ * @author sarath
+ *
+ */
+interface Events {
+
+	String name();
+
+	/**
+	 * @return an event that has started timing, or null.
+	 */
+	Object beginSort();
+
+	void endSort(Object event, SortProbe probe);
+
+	/**
+	 * @return an event that has started timing, or null.
+	 */
+	Object beginTraversal();
+
+	void endTraversal(Object event, TraversalProbe probe);
+
+	/**
+	 * Used when the flight recorder events are not available.
+	 */
+	static final class NoEvents implements Events {
+
+		@Override
+		public String name() {
+			return "none";
+		}
+
+		@Override
+		public Object beginSort() {
+			return null;
+		}
+
+		@Override
+		public void endSort(Object event, SortProbe probe) {
+		}
+
+		@Override
+		public Object beginTraversal() {
+			return null;
+		}
+
+		@Override
+		public void endTraversal(Object event, TraversalProbe probe) {
+		}
+	}
+
+}
@@ -0,0 +1,119 @@
+package org.dataapproach.algorithm.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Opt-in instrumentation of the sorts and graph traversals.
+ * 
+ * Instrumentation is switched on by starting the JVM with
+ * -Dorg.dataapproach.algorithm.metrics=true. The switch is read once into the
+ * static final {@link #ENABLED}; every probe method starts with
+ * if (ENABLED), so with the switch off the JIT compiler folds the probes away
+ * and the algorithms run exactly as before.
+ * 
+ * With the switch on, {@link SortProbe} and {@link TraversalProbe} count what
+ * one call did on the calling thread. When the call finishes the counts are
+ * added to a per algorithm {@link SortStats} or {@link TraversalStats}, which
+ * are registered as JMX MBeans under org.dataapproach.algorithm, and a JFR
+ * event (org.dataapproach.algorithm.Sort or .Traversal) is committed, so a
+ * flight recording shows every slow call with its numbers. The JFR events
+ * need JDK 11 or newer (see {@link Events}); without them only the MBeans are
+ * updated.
+ * 
+ * Probes are per thread. The calling thread of a parallel sort runs part of
+ * the fork/join work itself and counts it, but subtasks run by other workers
+ * are not counted, so the comparisons and moves reported for a parallel sort
+ * are a lower bound.
+ * 
+ * @author sarath
+ *
+ */
+public final class Metrics {
+
+	public static final boolean ENABLED = Boolean.getBoolean("org.dataapproach.algorithm.metrics");
+
+	static final String DOMAIN = "org.dataapproach.algorithm";
+
+	static final Events EVENTS = ENABLED ? loadEvents() : new Events.NoEvents();
+
+	private static final ConcurrentMap<String, SortStats> SORTS =
+			new ConcurrentHashMap<String, SortStats>();
+	private static final ConcurrentMap<String, TraversalStats> TRAVERSALS =
+			new ConcurrentHashMap<String, TraversalStats>();
+
+	private Metrics() {
+	}
+
+	/**
+	 * @return the statistics of one sort algorithm, created and registered
+	 *         with JMX on first use.
+	 */
+	public static SortStats sortStats(String algorithm) {
+		SortStats stats = SORTS.get(algorithm);
+		if (stats == null) {
+			SortStats created = new SortStats(algorithm);
+			stats = SORTS.putIfAbsent(algorithm, created);
+			if (stats == null) {
+				stats = created;
+				register("Sort", algorithm, created);
+			}
+		}
+		return stats;
+	}
+
+	/**
+	 * @return the statistics of one traversal algorithm, created and
+	 *         registered with JMX on first use.
+	 */
+	public static TraversalStats traversalStats(String algorithm) {
+		TraversalStats stats = TRAVERSALS.get(algorithm);
+		if (stats == null) {
+			TraversalStats created = new TraversalStats(algorithm);
+			stats = TRAVERSALS.putIfAbsent(algorithm, created);
+			if (stats == null) {
+				stats = created;
+				register("Traversal", algorithm, created);
+			}
+		}
+		return stats;
+	}
+
+	/**
+	 * @return the name of the per call event reporting in use, "jfr" or
+	 *         "none".
+	 */
+	public static String events() {
+		return EVENTS.name();
+	}
+
+	private static Events loadEvents() {
+		try {
+			return (Events) Class.forName("org.dataapproach.algorithm.metrics.JfrEvents")
+					.getDeclaredConstructor().newInstance();
+		} catch (Exception e) {
+			return new Events.NoEvents();
+		} catch (LinkageError e) {
+			// Compiled, but jdk.jfr is not available at run time
+			return new Events.NoEvents();
+		}
+	}
+
+	private static void register(String type, String name, Object mbean) {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName objectName = new ObjectName(DOMAIN + ":type=" + type
+					+ ",name=" + ObjectName.quote(name));
+			if (!server.isRegistered(objectName))
+				server.registerMBean(mbean, objectName);
+		} catch (JMException e) {
+			// Metrics stay available through the stats objects
+		}
+	}
+
+}
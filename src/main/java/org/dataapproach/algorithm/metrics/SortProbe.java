@@ -0,0 +1,155 @@
+package org.dataapproach.algorithm.metrics;
+
+/**
+ * Counts what one sort call does: comparisons, swaps, other element moves,
+ * scratch array allocations, recursion depth and fallbacks. A fallback is an
+ * exceptional switch to a slower path, for example a quicksort pivot that
+ * turned out to be the minimum or vector code that could not be used, not the
+ * routine switch to insertion sort below a cutoff.
+ * 
+ * A sort entry point calls {@link #begin(String, int)} and, in a finally
+ * block, {@link #end()}; the algorithm calls the counting methods as it goes.
+ * All methods are static and do nothing unless {@link Metrics#ENABLED} is set,
+ * so they compile to nothing in the default configuration. Calls nest: a sort
+ * started from inside another one gets its own probe and the outer probe
+ * continues once it ends.
+ * 
+ * @author sarath
+ *
+ */
+public final class SortProbe {
+
+	private static final ThreadLocal<SortProbe> CURRENT = new ThreadLocal<SortProbe>();
+
+	final String algorithm;
+	final int length;
+	final SortProbe previous;
+	final long start;
+	long comparisons;
+	long swaps;
+	long moves;
+	long allocated;
+	long fallbacks;
+	int depth;
+	int maxDepth;
+
+	// The flight recorder event of this call, or null
+	private final Object event;
+
+	private SortProbe(String algorithm, int length, SortProbe previous) {
+		this.algorithm = algorithm;
+		this.length = length;
+		this.previous = previous;
+		this.event = Metrics.EVENTS.beginSort();
+		this.start = System.nanoTime();
+	}
+
+	/**
+	 * Starts counting a sort of length elements on the current thread.
+	 */
+	public static void begin(String algorithm, int length) {
+		if (Metrics.ENABLED)
+			CURRENT.set(new SortProbe(algorithm, length, CURRENT.get()));
+	}
+
+	/**
+	 * Finishes the innermost sort of the current thread and publishes its
+	 * counts.
+	 */
+	public static void end() {
+		if (Metrics.ENABLED) {
+			SortProbe probe = CURRENT.get();
+			if (probe == null)
+				return;
+			long elapsed = System.nanoTime() - probe.start;
+			CURRENT.set(probe.previous);
+			Metrics.sortStats(probe.algorithm).add(probe, elapsed);
+			Metrics.EVENTS.endSort(probe.event, probe);
+		}
+	}
+
+	public static void compare() {
+		if (Metrics.ENABLED) {
+			SortProbe probe = CURRENT.get();
+			if (probe != null)
+				probe.comparisons++;
+		}
+	}
+
+	public static void compare(long count) {
+		if (Metrics.ENABLED) {
+			SortProbe probe = CURRENT.get();
+			if (probe != null)
+				probe.comparisons += count;
+		}
+	}
+
+	public static void swap() {
+		if (Metrics.ENABLED) {
+			SortProbe probe = CURRENT.get();
+			if (probe != null)
+				probe.swaps++;
+		}
+	}
+
+	public static void move() {
+		if (Metrics.ENABLED) {
+			SortProbe probe = CURRENT.get();
+			if (probe != null)
+				probe.moves++;
+		}
+	}
+
+	public static void move(long count) {
+		if (Metrics.ENABLED) {
+			SortProbe probe = CURRENT.get();
+			if (probe != null)
+				probe.moves += count;
+		}
+	}
+
+	/**
+	 * A scratch array of the given number of elements was allocated.
+	 */
+	public static void allocate(long elements) {
+		if (Metrics.ENABLED) {
+			SortProbe probe = CURRENT.get();
+			if (probe != null)
+				probe.allocated += elements;
+		}
+	}
+
+	/**
+	 * Entering one level of recursion.
+	 */
+	public static void enter() {
+		if (Metrics.ENABLED) {
+			SortProbe probe = CURRENT.get();
+			if (probe != null && ++probe.depth > probe.maxDepth)
+				probe.maxDepth = probe.depth;
+		}
+	}
+
+	/**
+	 * Leaving one level of recursion.
+	 */
+	public static void exit() {
+		if (Metrics.ENABLED) {
+			SortProbe probe = CURRENT.get();
+			if (probe != null)
+				probe.depth--;
+		}
+	}
+
+	/**
+	 * The sort left its fast path.
+	 */
+	public static void fallback() {
+		if (Metrics.ENABLED) {
+			SortProbe probe = CURRENT.get();
+			if (probe != null)
+				probe.fallbacks++;
+		}
+	}
+
+}
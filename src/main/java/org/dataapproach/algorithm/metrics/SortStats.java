@@ -0,0 +1,117 @@
+package org.dataapproach.algorithm.metrics;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Totals over all instrumented calls of one sort algorithm.
+ * 
+ * @author sarath
+ *
+ */
+public class SortStats implements SortStatsMBean {
+
+	private final String algorithm;
+	private final LongAdder calls = new LongAdder();
+	private final LongAdder elements = new LongAdder();
+	private final LongAdder comparisons = new LongAdder();
+	private final LongAdder swaps = new LongAdder();
+	private final LongAdder moves = new LongAdder();
+	private final LongAdder allocated = new LongAdder();
+	private final LongAdder fallbacks = new LongAdder();
+	private final LongAdder nanos = new LongAdder();
+	private final AtomicInteger maxDepth = new AtomicInteger();
+
+	SortStats(String algorithm) {
+		this.algorithm = algorithm;
+	}
+
+	void add(SortProbe probe, long elapsed) {
+		calls.increment();
+		elements.add(probe.length);
+		comparisons.add(probe.comparisons);
+		swaps.add(probe.swaps);
+		moves.add(probe.moves);
+		allocated.add(probe.allocated);
+		fallbacks.add(probe.fallbacks);
+		nanos.add(elapsed);
+		int current;
+		while (probe.maxDepth > (current = maxDepth.get())) {
+			if (maxDepth.compareAndSet(current, probe.maxDepth))
+				break;
+		}
+	}
+
+	@Override
+	public String getAlgorithm() {
+		return algorithm;
+	}
+
+	@Override
+	public long getCalls() {
+		return calls.sum();
+	}
+
+	@Override
+	public long getElements() {
+		return elements.sum();
+	}
+
+	@Override
+	public long getComparisons() {
+		return comparisons.sum();
+	}
+
+	@Override
+	public long getSwaps() {
+		return swaps.sum();
+	}
+
+	@Override
+	public long getMoves() {
+		return moves.sum();
+	}
+
+	@Override
+	public long getAllocatedElements() {
+		return allocated.sum();
+	}
+
+	@Override
+	public int getMaxRecursionDepth() {
+		return maxDepth.get();
+	}
+
+	@Override
+	public long getFallbacks() {
+		return fallbacks.sum();
+	}
+
+	@Override
+	public long getTotalNanos() {
+		return nanos.sum();
+	}
+
+	@Override
+	public void reset() {
+		calls.reset();
+		elements.reset();
+		comparisons.reset();
+		swaps.reset();
+		moves.reset();
+		allocated.reset();
+		fallbacks.reset();
+		nanos.reset();
+		maxDepth.set(0);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s: calls=%d elements=%d comparisons=%d swaps=%d moves=%d"
+				+ " allocated=%d maxDepth=%d fallbacks=%d time=%dms", algorithm, getCalls(),
+				getElements(), getComparisons(), getSwaps(), getMoves(), getAllocatedElements(),
+				getMaxRecursionDepth(),
+				getFallbacks(), getTotalNanos() / 1000000);
+	}
+
+}
@@ -0,0 +1,33 @@
+package org.dataapproach.algorithm.metrics;
+
+/**
+ * JMX view of {@link SortStats}.
+ * 
+ * @author sarath
+ *
+ */
+public interface SortStatsMBean {
+
+	String getAlgorithm();
+
+	long getCalls();
+
+	long getElements();
+
+	long getComparisons();
+
+	long getSwaps();
+
+	long getMoves();
+
+	long getAllocatedElements();
+
+	int getMaxRecursionDepth();
+
+	long getFallbacks();
+
+	long getTotalNanos();
+
+	void reset();
+
+}
@@ -0,0 +1,96 @@
+package org.dataapproach.algorithm.metrics;
+
+import java.util.Arrays;
+
+/**
+ * Counts what one graph traversal does: vertices visited, edges scanned and,
+ * for breadth first searches, the size of the frontier on every level.
+ * 
+ * Used the same way as {@link SortProbe}: begin and end around the traversal,
+ * counting methods inside, all of them no-ops unless {@link Metrics#ENABLED}
+ * is set.
+ * 
+ * @author sarath
+ *
+ */
+public final class TraversalProbe {
+
+	private static final ThreadLocal<TraversalProbe> CURRENT = new ThreadLocal<TraversalProbe>();
+
+	final String algorithm;
+	final TraversalProbe previous;
+	final long start;
+	long vertices;
+	long edges;
+	int levels;
+	int maxFrontier;
+	int[] frontier = new int[16];
+
+	// The flight recorder event of this call, or null
+	private final Object event;
+
+	private TraversalProbe(String algorithm, TraversalProbe previous) {
+		this.algorithm = algorithm;
+		this.previous = previous;
+		this.event = Metrics.EVENTS.beginTraversal();
+		this.start = System.nanoTime();
+	}
+
+	public static void begin(String algorithm) {
+		if (Metrics.ENABLED)
+			CURRENT.set(new TraversalProbe(algorithm, CURRENT.get()));
+	}
+
+	public static void end() {
+		if (Metrics.ENABLED) {
+			TraversalProbe probe = CURRENT.get();
+			if (probe == null)
+				return;
+			long elapsed = System.nanoTime() - probe.start;
+			CURRENT.set(probe.previous);
+			Metrics.traversalStats(probe.algorithm).add(probe, elapsed);
+			Metrics.EVENTS.endTraversal(probe.event, probe);
+		}
+	}
+
+	public static void vertex() {
+		if (Metrics.ENABLED) {
+			TraversalProbe probe = CURRENT.get();
+			if (probe != null)
+				probe.vertices++;
+		}
+	}
+
+	public static void edge() {
+		if (Metrics.ENABLED) {
+			TraversalProbe probe = CURRENT.get();
+			if (probe != null)
+				probe.edges++;
+		}
+	}
+
+	public static void edges(long count) {
+		if (Metrics.ENABLED) {
+			TraversalProbe probe = CURRENT.get();
+			if (probe != null)
+				probe.edges += count;
+		}
+	}
+
+	/**
+	 * A new BFS level starts with size vertices in the frontier.
+	 */
+	public static void level(int size) {
+		if (Metrics.ENABLED) {
+			TraversalProbe probe = CURRENT.get();
+			if (probe == null)
+				return;
+			if (probe.levels == probe.frontier.length)
+				probe.frontier = Arrays.copyOf(probe.frontier, probe.levels * 2);
+			probe.frontier[probe.levels++] = size;
+			if (size > probe.maxFrontier)
+				probe.maxFrontier = size;
+		}
+	}
+
+}
@@ -0,0 +1,107 @@
+package org.dataapproach.algorithm.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Totals over all instrumented runs of one traversal algorithm, plus the
+ * frontier size of every level of the most recent run.
+ * 
+ * @author sarath
+ *
+ */
+public class TraversalStats implements TraversalStatsMBean {
+
+	private final String algorithm;
+	private final LongAdder traversals = new LongAdder();
+	private final LongAdder vertices = new LongAdder();
+	private final LongAdder edges = new LongAdder();
+	private final LongAdder nanos = new LongAdder();
+	private final AtomicInteger maxLevels = new AtomicInteger();
+	private final AtomicInteger maxFrontier = new AtomicInteger();
+	private volatile int[] lastFrontierSizes = new int[0];
+
+	TraversalStats(String algorithm) {
+		this.algorithm = algorithm;
+	}
+
+	void add(TraversalProbe probe, long elapsed) {
+		traversals.increment();
+		vertices.add(probe.vertices);
+		edges.add(probe.edges);
+		nanos.add(elapsed);
+		raise(maxLevels, probe.levels);
+		raise(maxFrontier, probe.maxFrontier);
+		if (probe.levels > 0)
+			lastFrontierSizes = Arrays.copyOf(probe.frontier, probe.levels);
+	}
+
+	private static void raise(AtomicInteger max, int value) {
+		int current;
+		while (value > (current = max.get())) {
+			if (max.compareAndSet(current, value))
+				break;
+		}
+	}
+
+	@Override
+	public String getAlgorithm() {
+		return algorithm;
+	}
+
+	@Override
+	public long getTraversals() {
+		return traversals.sum();
+	}
+
+	@Override
+	public long getVerticesVisited() {
+		return vertices.sum();
+	}
+
+	@Override
+	public long getEdgesScanned() {
+		return edges.sum();
+	}
+
+	@Override
+	public int getMaxLevels() {
+		return maxLevels.get();
+	}
+
+	@Override
+	public int getMaxFrontier() {
+		return maxFrontier.get();
+	}
+
+	@Override
+	public int[] getLastFrontierSizes() {
+		return lastFrontierSizes.clone();
+	}
+
+	@Override
+	public long getTotalNanos() {
+		return nanos.sum();
+	}
+
+	@Override
+	public void reset() {
+		traversals.reset();
+		vertices.reset();
+		edges.reset();
+		nanos.reset();
+		maxLevels.set(0);
+		maxFrontier.set(0);
+		lastFrontierSizes = new int[0];
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s: traversals=%d vertices=%d edges=%d maxLevels=%d"
+				+ " maxFrontier=%d lastFrontier=%s time=%dms", algorithm, getTraversals(),
+				getVerticesVisited(), getEdgesScanned(), getMaxLevels(), getMaxFrontier(),
+				Arrays.toString(lastFrontierSizes), getTotalNanos() / 1000000);
+	}
+
+}
@@ -0,0 +1,29 @@
+package org.dataapproach.algorithm.metrics;
+
+/**
+ * JMX view of {@link TraversalStats}.
+ * 
+ * @author sarath
+ *
+ */
+public interface TraversalStatsMBean {
+
+	String getAlgorithm();
+
+	long getTraversals();
+
+	long getVerticesVisited();
+
+	long getEdgesScanned();
+
+	int getMaxLevels();
+
+	int getMaxFrontier();
+
+	int[] getLastFrontierSizes();
+
+	long getTotalNanos();
+
+	void reset();
+
+}
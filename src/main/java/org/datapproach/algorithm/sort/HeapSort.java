@@ -3,6 +3,8 @@ package org.datapproach.algorithm.sort;
 import java.util.Arrays;
 import java.util.Random;
 
+import org.dataapproach.algorithm.metrics.SortProbe;
+
 /**
  * Heapsort is one of the best general-purpose sorting algorithms, a comparison
  * sort and part of the selection sort family. Although somewhat slower in
@@ -107,12 +109,36 @@ public class HeapSort {
 	 *            an array of Comparable items.
 	 */
 	public static void heapsort(Comparable[] a) {
-		for (int i = a.length / 2; i >= 0; i--)
+		SortProbe.begin("HeapSort", a.length);
+		try {
+			heapsort(a, 0, a.length - 1);
+		} finally {
+			SortProbe.end();
+		}
+	}
+
+	/**
+	 * Heapsort of the subarray a[low..high]. Used by QuickSort when its
+	 * recursion gets too deep, so it counts into the probe of the caller, if
+	 * any.
+	 * 
+	 * @param a
+	 *            an array of Comparable items.
+	 * @param low
+	 *            the left-most index of the subarray.
+	 * @param high
+	 *            the right-most index of the subarray.
+	 */
+	public static void heapsort(Comparable[] a, int low, int high) {
+		int n = high - low + 1;
+		if (n < 2)
+			return;
+		for (int i = n / 2; i >= 0; i--)
 			/* buildHeap */
-			percDown(a, i, a.length);
-		for (int i = a.length - 1; i > 0; i--) {
-			swapReferences(a, 0, i); /* deleteMax */
-			percDown(a, 0, i);
+			percDown(a, low, i, n);
+		for (int i = n - 1; i > 0; i--) {
+			swapReferences(a, low, low + i); /* deleteMax */
+			percDown(a, low, 0, i);
 		}
 	}
 
@@ -132,26 +158,40 @@ public class HeapSort {
 	 * 
 	 * @param a
 	 *            an array of Comparable items.
+	 * @param low
+	 *            the index of the heap root in a; heap positions are relative
+	 *            to it.
 	 * @index i the position from which to percolate down.
 	 * @int n the logical size of the binary heap.
 	 */
-	private static void percDown(Comparable[] a, int i, int n) {
+	private static void percDown(Comparable[] a, int low, int i, int n) {
 		int child;
 		Comparable tmp;
 
-		for (tmp = a[i]; leftChild(i) < n; i = child) {
+		for (tmp = a[low + i]; leftChild(i) < n; i = child) {
 			// Get the left child
 			child = leftChild(i);
 			// If left child is less than right child
-			if (child != n - 1 && a[child].compareTo(a[child + 1]) < 0)
+			if (child != n - 1 && less(a[low + child], a[low + child + 1]))
 				child++; // picking right child
 			// Compare the parent with highest of child
-			if (tmp.compareTo(a[child]) < 0)
-				a[i] = a[child];
-			else
+			if (less(tmp, a[low + child])) {
+				a[low + i] = a[low + child];
+				SortProbe.move();
+			} else
 				break;
 		}
-		a[i] = tmp;
+		a[low + i] = tmp;
+	}
+
+	/**
+	 * Counted comparison.
+	 * 
+	 * @return true if x is less than y.
+	 */
+	private static boolean less(Comparable x, Comparable y) {
+		SortProbe.compare();
+		return x.compareTo(y) < 0;
 	}
 
 	/**
@@ -165,6 +205,7 @@ public class HeapSort {
 	 *            the index of the second object.
 	 */
 	public static final void swapReferences(Object[] a, int index1, int index2) {
+		SortProbe.swap();
 		Object tmp = a[index1];
 		a[index1] = a[index2];
 		a[index2] = tmp;
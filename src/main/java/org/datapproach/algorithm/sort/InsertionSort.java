@@ -3,6 +3,8 @@ package org.datapproach.algorithm.sort;
 import java.util.Arrays;
 import java.util.Random;
 
+import org.dataapproach.algorithm.metrics.SortProbe;
+
 /**
  * Insertion sort is a simple sorting algorithm, a comparison sort in which the
  * sorted array (or list) is built one entry at a time. It is much less
@@ -109,13 +111,83 @@ public class InsertionSort {
 	 *            an array of Comparable items.
 	 */
 	public static void insertionSort(Comparable[] a) {
-		for (int p = 1; p < a.length; p++) {
+		SortProbe.begin("InsertionSort", a.length);
+		try {
+			insertionSort(a, 0, a.length - 1);
+		} finally {
+			SortProbe.end();
+		}
+	}
+
+	/**
+	 * Insertion sort of the subarray a[low..high]. Used by other classes for
+	 * small arrays, so it counts into the probe of the caller, if any.
+	 * 
+	 * @param a
+	 *            an array of Comparable items.
+	 * @param low
+	 *            the left-most index of the subarray.
+	 * @param high
+	 *            the right-most index of the subarray.
+	 */
+	public static void insertionSort(Comparable[] a, int low, int high) {
+		for (int p = low + 1; p <= high; p++) {
 			Comparable tmp = a[p];
 			int j = p;
 
-			for (; j > 0 && tmp.compareTo(a[j - 1]) < 0; j--)
+			for (; j > low && less(tmp, a[j - 1]); j--)
+				a[j] = a[j - 1];
+			a[j] = tmp;
+			SortProbe.move(p - j);
+		}
+	}
+
+	/**
+	 * Counted comparison.
+	 * 
+	 * @return true if x is less than y.
+	 */
+	private static boolean less(Comparable x, Comparable y) {
+		SortProbe.compare();
+		return x.compareTo(y) < 0;
+	}
+
+	/**
+	 * Simple insertion sort for primitive ints.
+	 * 
+	 * @param a
+	 *            an array of ints.
+	 */
+	public static void insertionSort(int[] a) {
+		SortProbe.begin("InsertionSort", a.length);
+		try {
+			insertionSort(a, 0, a.length - 1);
+		} finally {
+			SortProbe.end();
+		}
+	}
+
+	/**
+	 * Insertion sort of the subarray a[low..high]. Used by other classes for
+	 * small arrays, so it counts into the probe of the caller, if any.
+	 * 
+	 * @param a
+	 *            an array of ints.
+	 * @param low
+	 *            the left-most index of the subarray.
+	 * @param high
+	 *            the right-most index of the subarray.
+	 */
+	public static void insertionSort(int[] a, int low, int high) {
+		for (int p = low + 1; p <= high; p++) {
+			int tmp = a[p];
+			int j = p;
+
+			for (; j > low && tmp < a[j - 1]; j--)
 				a[j] = a[j - 1];
 			a[j] = tmp;
+			SortProbe.compare(p - j + (j > low ? 1 : 0));
+			SortProbe.move(p - j);
 		}
 	}
 }
@@ -2,6 +2,10 @@ package org.datapproach.algorithm.sort;
 
 import java.util.Arrays;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.dataapproach.algorithm.metrics.SortProbe;
 
 /**
  * In computer science, merge sort or mergesort is a sorting algorithm for
@@ -110,8 +114,14 @@ public class MergeSort {
 	 *            an array of Comparable items.
 	 */
 	public static void mergesort(Comparable[] a) {
-		Comparable[] tmpArray = new Comparable[a.length];
-		mergesort(a, tmpArray, 0, a.length - 1);
+		SortProbe.begin("MergeSort", a.length);
+		try {
+			SortProbe.allocate(a.length);
+			Comparable[] tmpArray = new Comparable[a.length];
+			mergesort(a, tmpArray, 0, a.length - 1);
+		} finally {
+			SortProbe.end();
+		}
 	}
 
 	
@@ -131,12 +141,165 @@ public class MergeSort {
 			int left, int right) {
 		if (left < right) {
 			int center = (left + right) / 2;
+			SortProbe.enter();
 			mergesort(a, tmpArray, left, center);
 			mergesort(a, tmpArray, center + 1, right);
+			SortProbe.exit();
 			merge(a, tmpArray, left, center + 1, right);
 		}
 	}
 
+	/**
+	 * Natural mergesort. Splits the array into its existing ascending runs
+	 * (strictly descending runs are reversed in place) and merges neighboring
+	 * runs until one is left. Takes N comparisons on sorted input and
+	 * Nlog2(R) for R runs.
+	 * 
+	 * @param a
+	 *            an array of Comparable items.
+	 */
+	public static void naturalMergesort(Comparable[] a) {
+		SortProbe.begin("NaturalMergeSort", a.length);
+		try {
+			mergeRuns(a);
+		} finally {
+			SortProbe.end();
+		}
+	}
+
+	private static final int INITIAL_RUNS = 16;
+
+	/**
+	 * Internal method that finds the natural runs and merges them.
+	 * 
+	 * @param a
+	 *            an array of Comparable items.
+	 */
+	private static void mergeRuns(Comparable[] a) {
+		if (a.length < 2)
+			return;
+
+		// A single run, possibly reversed into place, needs no buffers
+		int end = nextRun(a, 0);
+		if (end == a.length)
+			return;
+
+		// runStart[r] is the first index of run r, runStart[runs] == a.length;
+		// it grows with the number of runs rather than the length of the input
+		SortProbe.allocate(INITIAL_RUNS);
+		int[] runStart = new int[INITIAL_RUNS];
+		int runs = 1;
+		while (true) {
+			if (runs == runStart.length) {
+				SortProbe.allocate(2 * runs);
+				runStart = Arrays.copyOf(runStart, 2 * runs);
+			}
+			if (end == a.length)
+				break;
+			runStart[runs++] = end;
+			end = nextRun(a, end);
+		}
+		runStart[runs] = a.length;
+
+		SortProbe.allocate(a.length);
+		Comparable[] tmpArray = new Comparable[a.length];
+		while (runs > 1) {
+			int merged = 0;
+			for (int r = 0; r < runs; r += 2) {
+				if (r + 1 < runs)
+					merge(a, tmpArray, runStart[r], runStart[r + 1], runStart[r + 2] - 1);
+				runStart[merged++] = runStart[r];
+			}
+			runStart[merged] = a.length;
+			runs = merged;
+		}
+	}
+
+	/**
+	 * Finds the natural run starting at i and reverses it if it is strictly
+	 * descending.
+	 * 
+	 * @return the index just past the run.
+	 */
+	private static int nextRun(Comparable[] a, int i) {
+		int j = i + 1;
+		if (j < a.length && less(a[j], a[i])) {
+			while (j < a.length && less(a[j], a[j - 1]))
+				j++;
+			for (int lo = i, hi = j - 1; lo < hi; lo++, hi--)
+				swapReferences(a, lo, hi);
+		} else {
+			while (j < a.length && !less(a[j], a[j - 1]))
+				j++;
+		}
+		return j;
+	}
+
+	private static final int PARALLEL_CUTOFF = 1 << 13;
+
+	/**
+	 * Mergesort that sorts the two halves in parallel with fork/join.
+	 * Subarrays below 8192 elements are sorted sequentially.
+	 * 
+	 * @param a
+	 *            an array of Comparable items.
+	 */
+	public static void parallelMergesort(Comparable[] a) {
+		SortProbe.begin("ParallelMergeSort", a.length);
+		try {
+			SortProbe.allocate(a.length);
+			Comparable[] tmpArray = new Comparable[a.length];
+			ForkJoinPool.commonPool().invoke(new MergeTask(a, tmpArray, 0, a.length - 1));
+		} finally {
+			SortProbe.end();
+		}
+	}
+
+	private static class MergeTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final Comparable[] a;
+		private final Comparable[] tmpArray;
+		private final int left;
+		private final int right;
+
+		MergeTask(Comparable[] a, Comparable[] tmpArray, int left, int right) {
+			this.a = a;
+			this.tmpArray = tmpArray;
+			this.left = left;
+			this.right = right;
+		}
+
+		@Override
+		protected void compute() {
+			if (right - left < PARALLEL_CUTOFF) {
+				mergesort(a, tmpArray, left, right);
+			} else {
+				int center = (left + right) / 2;
+				invokeAll(new MergeTask(a, tmpArray, left, center),
+						new MergeTask(a, tmpArray, center + 1, right));
+				merge(a, tmpArray, left, center + 1, right);
+			}
+		}
+	}
+
+	/**
+	 * Method to swap to elements in an array.
+	 * 
+	 * @param a
+	 *            an array of objects.
+	 * @param index1
+	 *            the index of the first object.
+	 * @param index2
+	 *            the index of the second object.
+	 */
+	public static final void swapReferences(Object[] a, int index1, int index2) {
+		SortProbe.swap();
+		Object tmp = a[index1];
+		a[index1] = a[index2];
+		a[index2] = tmp;
+	}
+
 	/**
 	 * Internal method that merges two sorted halves of a subarray.
 	 * 
@@ -159,7 +322,7 @@ public class MergeSort {
 
 		// Main loop
 		while (leftPos <= leftEnd && rightPos <= rightEnd)
-			if (a[leftPos].compareTo(a[rightPos]) <= 0)
+			if (!less(a[rightPos], a[leftPos]))
 				tmpArray[tmpPos++] = a[leftPos++];
 			else
 				tmpArray[tmpPos++] = a[rightPos++];
@@ -175,6 +338,17 @@ public class MergeSort {
 		// Copy tmpArray back
 		for (int i = 0; i < numElements; i++, rightEnd--)
 			a[rightEnd] = tmpArray[rightEnd];
+		SortProbe.move(2L * numElements);
+	}
+
+	/**
+	 * Counted comparison.
+	 * 
+	 * @return true if x is less than y.
+	 */
+	private static boolean less(Comparable x, Comparable y) {
+		SortProbe.compare();
+		return x.compareTo(y) < 0;
 	}
 	
 }
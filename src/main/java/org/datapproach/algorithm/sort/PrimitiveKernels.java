@@ -0,0 +1,37 @@
+package org.datapproach.algorithm.sort;
+
+/**
+ * The inner loops of {@link PrimitiveQuickSort}: sorting a small block and
+ * partitioning a range around a pivot. There is a scalar implementation in
+ * PrimitiveQuickSort and a SIMD one built on the Vector API in VectorKernels,
+ * which is only compiled and loaded when the JDK provides jdk.incubator.vector.
+ * 
+ * partition moves the elements of a[low..high] that are less than the pivot
+ * (less or equal when orEqual is set) to the front and returns the index of the
+ * first element of the rest.
+ * 
+ * sortSmall sorts a[low..high] for ranges of at most
+ * PrimitiveQuickSort.SMALL elements.
+ * 
+ * Both may use scratch, which has room for high - low + 1 + 64 elements.
+ * 
+ * @author sarath
+ *
+ */
+interface PrimitiveKernels {
+
+	String name();
+
+	void sortSmall(int[] a, int low, int high, int[] scratch);
+
+	int partition(int[] a, int low, int high, int pivot, boolean orEqual, int[] scratch);
+
+	void sortSmall(long[] a, int low, int high, long[] scratch);
+
+	int partition(long[] a, int low, int high, long pivot, boolean orEqual, long[] scratch);
+
+	void sortSmall(float[] a, int low, int high, float[] scratch);
+
+	int partition(float[] a, int low, int high, float pivot, boolean orEqual, float[] scratch);
+
+}
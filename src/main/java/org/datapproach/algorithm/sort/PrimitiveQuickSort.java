@@ -0,0 +1,389 @@
+package org.datapproach.algorithm.sort;
+
+import java.util.Random;
+
+import org.dataapproach.algorithm.metrics.SortProbe;
+
+/**
+ * Quicksort for arrays of primitive ints, longs and floats whose inner loops
+ * can run on SIMD hardware.
+ * 
+ * QuickSort works on Comparable items: every comparison is a virtual call and
+ * a branch the processor cannot predict on random data, both in the partition
+ * loop and in the insertion sort below the cutoff. For primitive keys both
+ * loops can be done with vector instructions instead. Small ranges of up to
+ * two vectors' worth of elements (16 ints or floats, 8 longs with 256 bit
+ * vectors; half that with 128 bit ones) are sorted with a bitonic sorting
+ * network held in vector registers (min, max and lane shuffles, no branches).
+ * The quicksort stops partitioning at 16 elements, so longer small ranges take
+ * the scalar insertion sort. Partitioning compares a whole vector against the
+ * pivot at once and packs the lanes on either side together with one shuffle
+ * chosen by the comparison mask.
+ * 
+ * The vector code lives in VectorKernels and uses the incubating Vector API
+ * (jdk.incubator.vector). It is only compiled on JDK 17 or newer (the maven
+ * profile "vector") and only used when the JVM was started with
+ * --add-modules jdk.incubator.vector. Otherwise, or with
+ * -Dorg.datapproach.algorithm.sort.vector=false, the same algorithm runs
+ * with scalar kernels: insertion sort and Hoare partitioning.
+ * 
+ * Around the kernels this is a median-of-three quicksort that recurses into
+ * the smaller side and loops on the larger one, so the stack depth stays
+ * logarithmic. A range whose pivot turns out to be its minimum is split into
+ * the keys equal to the pivot and the rest, which keeps runs of duplicates
+ * from degrading to quadratic time.
+ * 
+ * Floats sort like Arrays.sort: -0.0 before 0.0 and NaN last.
+ * 
+ * How much the vector kernels gain depends on the machine. The partition still
+ * stores every vector twice (the lanes below the pivot to the array, the rest
+ * to scratch) and copies the second group back, so it is bound by memory
+ * traffic more than the comparison count suggests. To compare on a given
+ * machine, run main once with --add-modules jdk.incubator.vector and once
+ * with -Dorg.datapproach.algorithm.sort.vector=false; it prints the kernels in
+ * use before the timings.
+ * 
+ * https://opensource.googleblog.com/2022/06/Vectorized%20and%20performance%20portable%20Quicksort.html
+ * 
+ * @author sarath
+ *
+ */
+public class PrimitiveQuickSort {
+
+	private static final Random RAND = new Random(42); // random number
+
+	/** Ranges of at most this many elements are handed to sortSmall. */
+	static final int SMALL = 16;
+
+	/** Extra scratch space the kernels may write past the range. */
+	static final int SLACK = 64;
+
+	// False when -Dorg.datapproach.algorithm.sort.vector=false asks for the scalar kernels
+	private static final boolean VECTOR = Boolean.parseBoolean(
+			System.getProperty("org.datapproach.algorithm.sort.vector", "true"));
+
+	private static final PrimitiveKernels KERNELS = loadKernels();
+
+	// Counted as a fallback on every sort when the vector kernels were wanted
+	// but did not load; running scalar by choice is not a fallback
+	private static final boolean VECTOR_FAILED = VECTOR && KERNELS instanceof ScalarKernels;
+
+	/**
+	 * @param args
+	 */
+	public static void main(String[] args) {
+
+		int LENGTH = 1000; // initial length of array to sort
+		int RUNS = 16; // how many times to grow by 2?
+
+		System.out.println("Kernels: " + kernels());
+
+		for (int i = 1; i <= RUNS; i++) {
+			int[] array = RadixSort.createRandomArray(LENGTH);
+
+			// run the algorithm and time how long it takes
+			long startTime1 = System.currentTimeMillis();
+			PrimitiveQuickSort.quicksort(array);
+			long endTime1 = System.currentTimeMillis();
+
+			if (!RadixSort.isSorted(array)) {
+				throw new RuntimeException("not sorted afterward");
+			}
+
+			System.out.printf("Time taken for %10d elements  =>  %6d ms \n",
+					LENGTH, endTime1 - startTime1);
+			System.out.println("");
+
+			LENGTH *= 2; // double size of array for next time
+		}
+	}
+
+	/**
+	 * @return the name of the kernels in use, "vector" or "scalar".
+	 */
+	public static String kernels() {
+		return KERNELS.name();
+	}
+
+	private static PrimitiveKernels loadKernels() {
+		if (!VECTOR)
+			return new ScalarKernels();
+		try {
+			return (PrimitiveKernels) Class.forName("org.datapproach.algorithm.sort.VectorKernels")
+					.getDeclaredConstructor().newInstance();
+		} catch (Exception e) {
+			return new ScalarKernels();
+		} catch (LinkageError e) {
+			// Compiled, but jdk.incubator.vector is not available at run time
+			return new ScalarKernels();
+		}
+	}
+
+	/**
+	 * Quicksort of an array of ints.
+	 * 
+	 * @param a
+	 *            an array of ints.
+	 */
+	public static void quicksort(int[] a) {
+		SortProbe.begin("PrimitiveQuickSort", a.length);
+		try {
+			if (a.length > 1) {
+				if (VECTOR_FAILED)
+					SortProbe.fallback();
+				SortProbe.allocate(a.length + SLACK);
+				quicksort(a, 0, a.length - 1, new int[a.length + SLACK]);
+			}
+		} finally {
+			SortProbe.end();
+		}
+	}
+
+	private static void quicksort(int[] a, int low, int high, int[] scratch) {
+		while (high - low + 1 > SMALL) {
+			int pivot = median(a[low], a[(low + high) >>> 1], a[high]);
+			int split = KERNELS.partition(a, low, high, pivot, false, scratch);
+			SortProbe.compare(high - low + 1);
+			if (split == low) {
+				// The pivot is the minimum: skip over all copies of it
+				SortProbe.fallback();
+				SortProbe.compare(high - low + 1);
+				low = KERNELS.partition(a, low, high, pivot, true, scratch);
+				continue;
+			}
+			SortProbe.enter();
+			if (split - low < high - split + 1) {
+				quicksort(a, low, split - 1, scratch);
+				low = split;
+			} else {
+				quicksort(a, split, high, scratch);
+				high = split - 1;
+			}
+			SortProbe.exit();
+		}
+		if (low < high)
+			KERNELS.sortSmall(a, low, high, scratch);
+	}
+
+	/**
+	 * Quicksort of an array of longs.
+	 * 
+	 * @param a
+	 *            an array of longs.
+	 */
+	public static void quicksort(long[] a) {
+		SortProbe.begin("PrimitiveQuickSort", a.length);
+		try {
+			if (a.length > 1) {
+				if (VECTOR_FAILED)
+					SortProbe.fallback();
+				SortProbe.allocate(a.length + SLACK);
+				quicksort(a, 0, a.length - 1, new long[a.length + SLACK]);
+			}
+		} finally {
+			SortProbe.end();
+		}
+	}
+
+	private static void quicksort(long[] a, int low, int high, long[] scratch) {
+		while (high - low + 1 > SMALL) {
+			long pivot = median(a[low], a[(low + high) >>> 1], a[high]);
+			int split = KERNELS.partition(a, low, high, pivot, false, scratch);
+			SortProbe.compare(high - low + 1);
+			if (split == low) {
+				SortProbe.fallback();
+				SortProbe.compare(high - low + 1);
+				low = KERNELS.partition(a, low, high, pivot, true, scratch);
+				continue;
+			}
+			SortProbe.enter();
+			if (split - low < high - split + 1) {
+				quicksort(a, low, split - 1, scratch);
+				low = split;
+			} else {
+				quicksort(a, split, high, scratch);
+				high = split - 1;
+			}
+			SortProbe.exit();
+		}
+		if (low < high)
+			KERNELS.sortSmall(a, low, high, scratch);
+	}
+
+	/**
+	 * Quicksort of an array of floats. NaNs are moved to the end and -0.0 is
+	 * put back before 0.0 afterwards, so the kernels only see ordinary values.
+	 * 
+	 * @param a
+	 *            an array of floats.
+	 */
+	public static void quicksort(float[] a) {
+		SortProbe.begin("PrimitiveQuickSort", a.length);
+		try {
+			int n = 0;
+			int negativeZeros = 0;
+			for (int i = 0; i < a.length; i++) {
+				float x = a[i];
+				if (x != x)
+					continue; // NaN
+				if (x == 0.0f && Float.floatToRawIntBits(x) != 0) {
+					negativeZeros++;
+					x = 0.0f;
+				}
+				a[n++] = x;
+			}
+			for (int i = n; i < a.length; i++)
+				a[i] = Float.NaN;
+
+			if (n > 1) {
+				if (VECTOR_FAILED)
+					SortProbe.fallback();
+				SortProbe.allocate(n + SLACK);
+				quicksort(a, 0, n - 1, new float[n + SLACK]);
+			}
+
+			if (negativeZeros > 0) {
+				// First 0.0 in the sorted prefix
+				int lo = 0, hi = n;
+				while (lo < hi) {
+					int mid = (lo + hi) >>> 1;
+					if (a[mid] < 0.0f)
+						lo = mid + 1;
+					else
+						hi = mid;
+				}
+				for (int i = lo; i < lo + negativeZeros; i++)
+					a[i] = -0.0f;
+			}
+		} finally {
+			SortProbe.end();
+		}
+	}
+
+	private static void quicksort(float[] a, int low, int high, float[] scratch) {
+		while (high - low + 1 > SMALL) {
+			float pivot = median(a[low], a[(low + high) >>> 1], a[high]);
+			int split = KERNELS.partition(a, low, high, pivot, false, scratch);
+			SortProbe.compare(high - low + 1);
+			if (split == low) {
+				SortProbe.fallback();
+				SortProbe.compare(high - low + 1);
+				low = KERNELS.partition(a, low, high, pivot, true, scratch);
+				continue;
+			}
+			SortProbe.enter();
+			if (split - low < high - split + 1) {
+				quicksort(a, low, split - 1, scratch);
+				low = split;
+			} else {
+				quicksort(a, split, high, scratch);
+				high = split - 1;
+			}
+			SortProbe.exit();
+		}
+		if (low < high)
+			KERNELS.sortSmall(a, low, high, scratch);
+	}
+
+	private static int median(int x, int y, int z) {
+		return Math.max(Math.min(x, y), Math.min(Math.max(x, y), z));
+	}
+
+	private static long median(long x, long y, long z) {
+		return Math.max(Math.min(x, y), Math.min(Math.max(x, y), z));
+	}
+
+	private static float median(float x, float y, float z) {
+		return Math.max(Math.min(x, y), Math.min(Math.max(x, y), z));
+	}
+
+	/**
+	 * Scalar kernels: insertion sort and Hoare style partitioning.
+	 */
+	static class ScalarKernels implements PrimitiveKernels {
+
+		@Override
+		public String name() {
+			return "scalar";
+		}
+
+		@Override
+		public void sortSmall(int[] a, int low, int high, int[] scratch) {
+			InsertionSort.insertionSort(a, low, high);
+		}
+
+		@Override
+		public int partition(int[] a, int low, int high, int pivot, boolean orEqual,
+				int[] scratch) {
+			int i = low, j = high;
+			while (true) {
+				while (i <= j && (a[i] < pivot || orEqual && a[i] == pivot))
+					i++;
+				while (i <= j && !(a[j] < pivot || orEqual && a[j] == pivot))
+					j--;
+				if (i >= j)
+					return i;
+				int tmp = a[i];
+				a[i++] = a[j];
+				a[j--] = tmp;
+			}
+		}
+
+		@Override
+		public void sortSmall(long[] a, int low, int high, long[] scratch) {
+			for (int p = low + 1; p <= high; p++) {
+				long tmp = a[p];
+				int j = p;
+				for (; j > low && tmp < a[j - 1]; j--)
+					a[j] = a[j - 1];
+				a[j] = tmp;
+			}
+		}
+
+		@Override
+		public int partition(long[] a, int low, int high, long pivot, boolean orEqual,
+				long[] scratch) {
+			int i = low, j = high;
+			while (true) {
+				while (i <= j && (a[i] < pivot || orEqual && a[i] == pivot))
+					i++;
+				while (i <= j && !(a[j] < pivot || orEqual && a[j] == pivot))
+					j--;
+				if (i >= j)
+					return i;
+				long tmp = a[i];
+				a[i++] = a[j];
+				a[j--] = tmp;
+			}
+		}
+
+		@Override
+		public void sortSmall(float[] a, int low, int high, float[] scratch) {
+			for (int p = low + 1; p <= high; p++) {
+				float tmp = a[p];
+				int j = p;
+				for (; j > low && tmp < a[j - 1]; j--)
+					a[j] = a[j - 1];
+				a[j] = tmp;
+			}
+		}
+
+		@Override
+		public int partition(float[] a, int low, int high, float pivot, boolean orEqual,
+				float[] scratch) {
+			int i = low, j = high;
+			while (true) {
+				while (i <= j && (a[i] < pivot || orEqual && a[i] == pivot))
+					i++;
+				while (i <= j && !(a[j] < pivot || orEqual && a[j] == pivot))
+					j--;
+				if (i >= j)
+					return i;
+				float tmp = a[i];
+				a[i++] = a[j];
+				a[j--] = tmp;
+			}
+		}
+	}
+
+}
@@ -3,6 +3,8 @@ package org.datapproach.algorithm.sort;
 import java.util.Arrays;
 import java.util.Random;
 
+import org.dataapproach.algorithm.metrics.SortProbe;
+
 /**
  * Quicksort is a well-known sorting algorithm developed by C. A. R. Hoare that,
  * on average, makes Θ(n log n) comparisons to sort n items. However, in the
@@ -46,6 +48,11 @@ import java.util.Random;
  * 
  * This uses inplace sorting.
  * 
+ * To keep the worst case at Nlog2(N) this is an introsort: a range still above
+ * the cutoff after 2log2(N) levels of partitioning is handed to heapsort. The
+ * recursion goes into the smaller side and loops on the larger one, so the
+ * stack depth stays logarithmic.
+ * 
  * It is better to switch to insertion sort from merge sort,
  *  if number of elements is less than 12
  * 
@@ -134,14 +141,19 @@ public class QuickSort {
 	 *            an array of Comparable items.
 	 */
 	public static void quicksort(Comparable[] a) {
-		quicksort(a, 0, a.length - 1);
+		SortProbe.begin("QuickSort", a.length);
+		try {
+			quicksort(a, 0, a.length - 1);
+		} finally {
+			SortProbe.end();
+		}
 	}
 
 	private static final int CUTOFF = 10;
 
 	/**
-	 * Internal quicksort method that makes recursive calls. Uses
-	 * median-of-three partitioning and a cutoff of 10.
+	 * Quicksort method that makes recursive calls, also used to sort a
+	 * subarray. Uses median-of-three partitioning and a cutoff of 10.
 	 * 
 	 * @param a
 	 *            an array of Comparable items.
@@ -150,17 +162,31 @@ public class QuickSort {
 	 * @param high
 	 *            the right-most index of the subarray.
 	 */
-	private static void quicksort(Comparable[] a, int low, int high) {
-		if (low + CUTOFF > high)
-			insertionSort(a, low, high);
-		else {
+	public static void quicksort(Comparable[] a, int low, int high) {
+		quicksort(a, low, high, depthLimit(high - low + 1));
+	}
+
+	/**
+	 * Internal quicksort method with the introsort depth budget.
+	 * 
+	 * @param depth
+	 *            the partitioning levels left before heapsort takes over.
+	 */
+	private static void quicksort(Comparable[] a, int low, int high, int depth) {
+		while (low + CUTOFF <= high) {
+			if (depth-- == 0) {
+				SortProbe.fallback();
+				HeapSort.heapsort(a, low, high);
+				return;
+			}
+
 			// Sort low, middle, high
 			int middle = (low + high) / 2;
-			if (a[middle].compareTo(a[low]) < 0)
+			if (less(a[middle], a[low]))
 				swapReferences(a, low, middle);
-			if (a[high].compareTo(a[low]) < 0)
+			if (less(a[high], a[low]))
 				swapReferences(a, low, high);
-			if (a[high].compareTo(a[middle]) < 0)
+			if (less(a[high], a[middle]))
 				swapReferences(a, middle, high);
 
 			// Place pivot at position high - 1
@@ -170,9 +196,9 @@ public class QuickSort {
 			// Begin partitioning
 			int i, j;
 			for (i = low, j = high - 1;;) {
-				while (a[++i].compareTo(pivot) < 0)
+				while (less(a[++i], pivot))
 					;
-				while (pivot.compareTo(a[--j]) < 0)
+				while (less(pivot, a[--j]))
 					;
 				if (i >= j)
 					break;
@@ -182,11 +208,110 @@ public class QuickSort {
 			// Restore pivot
 			swapReferences(a, i, high - 1);
 
-			quicksort(a, low, i - 1); // Sort small elements
-			quicksort(a, i + 1, high); // Sort large elements
+			// Recurse into the smaller side, loop on the larger one
+			SortProbe.enter();
+			if (i - low < high - i) {
+				quicksort(a, low, i - 1, depth);
+				low = i + 1;
+			} else {
+				quicksort(a, i + 1, high, depth);
+				high = i - 1;
+			}
+			SortProbe.exit();
+		}
+		insertionSort(a, low, high);
+	}
+
+	/**
+	 * @return the introsort depth budget for n elements, 2 * floor(log2(n)).
+	 */
+	private static int depthLimit(int n) {
+		return n < 2 ? 0 : 2 * (31 - Integer.numberOfLeadingZeros(n));
+	}
+
+	/**
+	 * Quicksort with three-way (Dijkstra) partitioning. Elements equal to the
+	 * pivot are gathered in the middle and excluded from both recursive calls,
+	 * so arrays with many duplicate keys sort in close to linear time.
+	 * 
+	 * @param a
+	 *            an array of Comparable items.
+	 */
+	public static void quicksort3way(Comparable[] a) {
+		SortProbe.begin("QuickSort3Way", a.length);
+		try {
+			quicksort3way(a, 0, a.length - 1);
+		} finally {
+			SortProbe.end();
 		}
 	}
 
+	/**
+	 * Internal three-way quicksort method. Uses median-of-three pivot
+	 * selection and a cutoff of 10.
+	 * 
+	 * @param a
+	 *            an array of Comparable items.
+	 * @param low
+	 *            the left-most index of the subarray.
+	 * @param high
+	 *            the right-most index of the subarray.
+	 */
+	private static void quicksort3way(Comparable[] a, int low, int high) {
+		quicksort3way(a, low, high, depthLimit(high - low + 1));
+	}
+
+	/**
+	 * Internal three-way quicksort method with the introsort depth budget.
+	 * 
+	 * @param depth
+	 *            the partitioning levels left before heapsort takes over.
+	 */
+	private static void quicksort3way(Comparable[] a, int low, int high, int depth) {
+		while (low + CUTOFF <= high) {
+			if (depth-- == 0) {
+				SortProbe.fallback();
+				HeapSort.heapsort(a, low, high);
+				return;
+			}
+
+			// Sort low, middle, high and use the middle as pivot
+			int middle = (low + high) / 2;
+			if (less(a[middle], a[low]))
+				swapReferences(a, low, middle);
+			if (less(a[high], a[low]))
+				swapReferences(a, low, high);
+			if (less(a[high], a[middle]))
+				swapReferences(a, middle, high);
+			Comparable pivot = a[middle];
+
+			// a[low..lt-1] < pivot, a[lt..i-1] == pivot, a[gt+1..high] > pivot
+			int lt = low, i = low, gt = high;
+			while (i <= gt) {
+				SortProbe.compare();
+				int cmp = a[i].compareTo(pivot);
+				if (cmp < 0)
+					swapReferences(a, lt++, i++);
+				else if (cmp > 0)
+					swapReferences(a, i, gt--);
+				else
+					i++;
+			}
+
+			// Recurse into the smaller side, loop on the larger one
+			SortProbe.enter();
+			if (lt - low < high - gt) {
+				quicksort3way(a, low, lt - 1, depth);
+				low = gt + 1;
+			} else {
+				quicksort3way(a, gt + 1, high, depth);
+				high = lt - 1;
+			}
+			SortProbe.exit();
+		}
+		insertionSort(a, low, high);
+	}
+
 	/**
 	 * Method to swap to elements in an array.
 	 * 
@@ -198,6 +323,7 @@ public class QuickSort {
 	 *            the index of the second object.
 	 */
 	public static final void swapReferences(Object[] a, int index1, int index2) {
+		SortProbe.swap();
 		Object tmp = a[index1];
 		a[index1] = a[index2];
 		a[index2] = tmp;
@@ -218,9 +344,20 @@ public class QuickSort {
 			Comparable tmp = a[p];
 			int j;
 
-			for (j = p; j > low && tmp.compareTo(a[j - 1]) < 0; j--)
+			for (j = p; j > low && less(tmp, a[j - 1]); j--)
 				a[j] = a[j - 1];
 			a[j] = tmp;
+			SortProbe.move(p - j);
 		}
 	}
+
+	/**
+	 * Counted comparison.
+	 * 
+	 * @return true if x is less than y.
+	 */
+	private static boolean less(Comparable x, Comparable y) {
+		SortProbe.compare();
+		return x.compareTo(y) < 0;
+	}
 }
@@ -0,0 +1,187 @@
+package org.datapproach.algorithm.sort;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.dataapproach.algorithm.metrics.SortProbe;
+
+/**
+ * Radix sort is a non-comparative sorting algorithm that sorts integer keys by
+ * processing them digit by digit. This is the least significant digit (LSD)
+ * variant with 8 bit digits: each of the four passes is a stable counting sort
+ * on one byte of the key, from the lowest byte to the highest.
+ * 
+ * The sign bit is flipped while computing the top digit so negative numbers
+ * sort before positive ones. A pass whose digit is the same for every key is
+ * skipped, which makes small key ranges cheaper.
+ * 
+ * When the keys span a range no bigger than the array itself, counting sort
+ * does the job in a single pass.
+ * 
+ * https://en.wikipedia.org/wiki/Radix_sort
+ * 
+ * The time complexity of RadixSort is N * (number of digits), independent of
+ * the order of the input.
+ * 
+ * This uses a additional memory of size N.
+ * 
+ * @author sarath
+ *
+ */
+public class RadixSort {
+
+	private static final Random RAND = new Random(42); // random number
+
+	private static final int BITS = 8;
+	private static final int BUCKETS = 1 << BITS;
+	private static final int MASK = BUCKETS - 1;
+
+	/**
+	 * @param args
+	 */
+	public static void main(String[] args) {
+
+		int LENGTH = 1000; // initial length of array to sort
+		int RUNS = 16; // how many times to grow by 2?
+
+		System.out.println("");
+
+		for (int i = 1; i <= RUNS; i++) {
+			int[] array = createRandomArray(LENGTH);
+
+			// run the algorithm and time how long it takes
+			long startTime1 = System.currentTimeMillis();
+			RadixSort.radixsort(array);
+			long endTime1 = System.currentTimeMillis();
+
+			if (!isSorted(array)) {
+				throw new RuntimeException("not sorted afterward");
+			}
+
+			System.out.printf("Time taken for %10d elements  =>  %6d ms \n",
+					LENGTH, endTime1 - startTime1);
+			System.out.println("");
+
+			LENGTH *= 2; // double size of array for next time
+		}
+	}
+
+	// Returns true if the given array is in sorted ascending order.
+	public static boolean isSorted(int[] a) {
+		for (int i = 0; i < a.length - 1; i++) {
+			if (a[i] > a[i + 1]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// Creates an array of the given length, fills it with random
+	// integers, and returns it.
+	public static int[] createRandomArray(int length) {
+		int[] a = new int[length];
+		for (int i = 0; i < a.length; i++) {
+			a[i] = RAND.nextInt();
+		}
+		return a;
+	}
+
+	/**
+	 * LSD radix sort.
+	 * 
+	 * @param a
+	 *            an array of ints.
+	 */
+	public static void radixsort(int[] a) {
+		SortProbe.begin("RadixSort", a.length);
+		try {
+			radixsort(a, 0, a.length - 1);
+		} finally {
+			SortProbe.end();
+		}
+	}
+
+	/**
+	 * LSD radix sort of the subarray a[low..high].
+	 * 
+	 * @param a
+	 *            an array of ints.
+	 * @param low
+	 *            the left-most index of the subarray.
+	 * @param high
+	 *            the right-most index of the subarray.
+	 */
+	public static void radixsort(int[] a, int low, int high) {
+		int length = high - low + 1;
+		if (length < 2)
+			return;
+		SortProbe.allocate(length);
+		int[] tmpArray = new int[length];
+		int[] from = a;
+		int fromStart = low;
+		int[] to = tmpArray;
+		int toStart = 0;
+		int[] count = new int[BUCKETS + 1];
+
+		for (int shift = 0; shift < 32; shift += BITS) {
+			int flip = shift == 32 - BITS ? 0x80 : 0;
+			Arrays.fill(count, 0);
+			for (int i = fromStart; i < fromStart + length; i++)
+				count[(((from[i] >>> shift) & MASK) ^ flip) + 1]++;
+
+			// Skip the pass if every key has the same digit
+			if (count[(((from[fromStart] >>> shift) & MASK) ^ flip) + 1] == length)
+				continue;
+
+			for (int d = 0; d < BUCKETS; d++)
+				count[d + 1] += count[d];
+			for (int i = fromStart; i < fromStart + length; i++)
+				to[toStart + count[((from[i] >>> shift) & MASK) ^ flip]++] = from[i];
+			SortProbe.move(length);
+
+			int[] swap = from;
+			from = to;
+			to = swap;
+			int swapStart = fromStart;
+			fromStart = toStart;
+			toStart = swapStart;
+		}
+
+		if (from != a) {
+			System.arraycopy(from, fromStart, a, low, length);
+			SortProbe.move(length);
+		}
+	}
+
+	/**
+	 * Counting sort for keys in [min, max]. Uses max - min + 1 counters.
+	 * 
+	 * @param a
+	 *            an array of ints.
+	 * @param min
+	 *            the smallest key in a.
+	 * @param max
+	 *            the largest key in a.
+	 */
+	public static void countingSort(int[] a, int min, int max) {
+		long range = (long) max - min + 1;
+		if (range > Integer.MAX_VALUE - 8)
+			throw new IllegalArgumentException("key range too large: " + range);
+		SortProbe.begin("CountingSort", a.length);
+		try {
+			SortProbe.allocate(range);
+			int[] count = new int[(int) range];
+			for (int i = 0; i < a.length; i++)
+				count[a[i] - min]++;
+			int pos = 0;
+			for (int k = 0; k < count.length; k++) {
+				for (int c = count[k]; c > 0; c--)
+					a[pos++] = k + min;
+			}
+			SortProbe.move(a.length);
+		} finally {
+			SortProbe.end();
+		}
+	}
+
+}
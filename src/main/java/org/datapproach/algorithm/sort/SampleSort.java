@@ -0,0 +1,321 @@
+package org.datapproach.algorithm.sort;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+import org.dataapproach.algorithm.metrics.SortProbe;
+
+/**
+ * Sample sort is a distribution sort that generalizes quicksort from one pivot
+ * to k - 1 splitters. The splitters cut the keys into k buckets of about equal
+ * size, after which every bucket can be sorted on its own.
+ * 
+ * The steps are:
+ * 
+ * Draw an oversample of k * 16 random elements, sort it and take every 16th
+ * element as a splitter. Lay the splitters out as an implicit binary search
+ * tree (the root at 1, the children of j at 2j and 2j + 1) so that finding the
+ * bucket of an element is log2(k) steps of j = 2j + (x > tree[j]), with no
+ * data dependent branch to mispredict. Cut the input into one block per
+ * worker; every block classifies its elements in parallel, remembering each
+ * bucket number and counting how many of its elements fall in each bucket. A
+ * prefix sum over those counts, bucket by bucket and within a bucket block by
+ * block, gives every block its own write position in every bucket, so all
+ * blocks scatter into one shared output buffer in parallel without
+ * synchronization. Finally the buckets are sorted in parallel with the
+ * sequential sorters (RadixSort for ints, QuickSort for Comparable items) and
+ * copied back.
+ * 
+ * Unlike the recursive parallel sorts, the data is moved once by a fully
+ * parallel distribution pass and the rest of the work is k independent
+ * sequential sorts.
+ * 
+ * Many copies of a splitter key all land in one bucket, so heavily duplicated
+ * inputs balance worse; Sorter sends those to sequential radix sort (ints) or
+ * three-way quicksort (Comparable items) instead.
+ * 
+ * https://en.wikipedia.org/wiki/Samplesort
+ * 
+ * This uses a additional memory of size N plus one byte per element for the
+ * bucket numbers.
+ * 
+ * @author sarath
+ *
+ */
+public class SampleSort {
+
+	private static final Random RAND = new Random(42); // random number
+
+	private static final int OVERSAMPLE = 16;
+	private static final int MIN_BUCKETS = 8;
+	private static final int MAX_BUCKETS = 256;
+	private static final int SEQUENTIAL_CUTOFF = 1 << 14;
+
+	/**
+	 * @param args
+	 */
+	public static void main(String[] args) {
+
+		int LENGTH = 1000; // initial length of array to sort
+		int RUNS = 16; // how many times to grow by 2?
+
+		System.out.println("");
+
+		for (int i = 1; i <= RUNS; i++) {
+			int[] array = RadixSort.createRandomArray(LENGTH);
+
+			// run the algorithm and time how long it takes
+			long startTime1 = System.currentTimeMillis();
+			SampleSort.samplesort(array);
+			long endTime1 = System.currentTimeMillis();
+
+			if (!RadixSort.isSorted(array)) {
+				throw new RuntimeException("not sorted afterward");
+			}
+
+			System.out.printf("Time taken for %10d elements  =>  %6d ms \n",
+					LENGTH, endTime1 - startTime1);
+			System.out.println("");
+
+			LENGTH *= 2; // double size of array for next time
+		}
+	}
+
+	/**
+	 * Parallel sample sort of an int array.
+	 * 
+	 * @param a
+	 *            an array of ints.
+	 */
+	public static void samplesort(int[] a) {
+		SortProbe.begin("SampleSort", a.length);
+		try {
+			int n = a.length;
+			if (n < SEQUENTIAL_CUTOFF) {
+				SortProbe.fallback();
+				RadixSort.radixsort(a);
+				return;
+			}
+			int workers = ForkJoinPool.getCommonPoolParallelism();
+			int k = buckets(workers);
+			int levels = Integer.numberOfTrailingZeros(k);
+
+			// Splitters from a sorted oversample, as an implicit search tree
+			int[] sample = new int[k * OVERSAMPLE];
+			for (int i = 0; i < sample.length; i++)
+				sample[i] = a[nextIndex(n)];
+			Arrays.sort(sample);
+			int[] splitters = new int[k - 1];
+			for (int i = 0; i < k - 1; i++)
+				splitters[i] = sample[(i + 1) * OVERSAMPLE];
+			final int[] tree = new int[k];
+			buildTree(splitters, tree, 1, 0, k - 1);
+
+			int blocks = Math.max(1, Math.min(workers * 4, n / SEQUENTIAL_CUTOFF));
+			int blockSize = (n + blocks - 1) / blocks;
+			SortProbe.allocate(2L * n);
+			byte[] bucketOf = new byte[n];
+			int[][] counts = new int[blocks][k];
+
+			// Classify
+			forEach(blocks, block -> {
+				int[] count = counts[block];
+				int end = Math.min(n, (block + 1) * blockSize);
+				for (int i = block * blockSize; i < end; i++) {
+					int x = a[i];
+					int j = 1;
+					for (int l = 0; l < levels; l++)
+						j = 2 * j + (x > tree[j] ? 1 : 0);
+					bucketOf[i] = (byte) (j - k);
+					count[j - k]++;
+				}
+			});
+
+			int[] bucketStart = prefixSums(counts, k, n);
+			SortProbe.compare((long) levels * n);
+
+			// Scatter
+			int[] tmpArray = new int[n];
+			forEach(blocks, block -> {
+				int[] next = counts[block];
+				int end = Math.min(n, (block + 1) * blockSize);
+				for (int i = block * blockSize; i < end; i++)
+					tmpArray[next[bucketOf[i] & 0xff]++] = a[i];
+			});
+
+			// Sort buckets and copy back
+			SortProbe.move(2L * n);
+			forEach(k, bucket -> {
+				int from = bucketStart[bucket];
+				int to = bucketStart[bucket + 1];
+				RadixSort.radixsort(tmpArray, from, to - 1);
+				System.arraycopy(tmpArray, from, a, from, to - from);
+			});
+		} finally {
+			SortProbe.end();
+		}
+	}
+
+	/**
+	 * Parallel sample sort of an array of Comparable items.
+	 * 
+	 * @param a
+	 *            an array of Comparable items.
+	 */
+	public static void samplesort(Comparable[] a) {
+		SortProbe.begin("SampleSort", a.length);
+		try {
+			int n = a.length;
+			if (n < SEQUENTIAL_CUTOFF) {
+				SortProbe.fallback();
+				QuickSort.quicksort(a);
+				return;
+			}
+			int workers = ForkJoinPool.getCommonPoolParallelism();
+			int k = buckets(workers);
+			int levels = Integer.numberOfTrailingZeros(k);
+
+			Comparable[] sample = new Comparable[k * OVERSAMPLE];
+			for (int i = 0; i < sample.length; i++)
+				sample[i] = a[nextIndex(n)];
+			QuickSort.quicksort(sample);
+			Comparable[] splitters = new Comparable[k - 1];
+			for (int i = 0; i < k - 1; i++)
+				splitters[i] = sample[(i + 1) * OVERSAMPLE];
+			final Comparable[] tree = new Comparable[k];
+			buildTree(splitters, tree, 1, 0, k - 1);
+
+			int blocks = Math.max(1, Math.min(workers * 4, n / SEQUENTIAL_CUTOFF));
+			int blockSize = (n + blocks - 1) / blocks;
+			SortProbe.allocate(2L * n);
+			byte[] bucketOf = new byte[n];
+			int[][] counts = new int[blocks][k];
+
+			forEach(blocks, block -> {
+				int[] count = counts[block];
+				int end = Math.min(n, (block + 1) * blockSize);
+				for (int i = block * blockSize; i < end; i++) {
+					Comparable x = a[i];
+					int j = 1;
+					for (int l = 0; l < levels; l++)
+						j = 2 * j + (x.compareTo(tree[j]) > 0 ? 1 : 0);
+					bucketOf[i] = (byte) (j - k);
+					count[j - k]++;
+				}
+			});
+
+			int[] bucketStart = prefixSums(counts, k, n);
+			SortProbe.compare((long) levels * n);
+
+			Comparable[] tmpArray = new Comparable[n];
+			forEach(blocks, block -> {
+				int[] next = counts[block];
+				int end = Math.min(n, (block + 1) * blockSize);
+				for (int i = block * blockSize; i < end; i++)
+					tmpArray[next[bucketOf[i] & 0xff]++] = a[i];
+			});
+
+			SortProbe.move(2L * n);
+			forEach(k, bucket -> {
+				int from = bucketStart[bucket];
+				int to = bucketStart[bucket + 1];
+				QuickSort.quicksort(tmpArray, from, to - 1);
+				System.arraycopy(tmpArray, from, a, from, to - from);
+			});
+		} finally {
+			SortProbe.end();
+		}
+	}
+
+	/**
+	 * The number of buckets: a power of two, about four per worker.
+	 */
+	private static int buckets(int workers) {
+		int k = Integer.highestOneBit(Math.max(1, workers * 4) * 2 - 1);
+		return Math.max(MIN_BUCKETS, Math.min(MAX_BUCKETS, k));
+	}
+
+	private static int nextIndex(int n) {
+		synchronized (RAND) {
+			return RAND.nextInt(n);
+		}
+	}
+
+	/**
+	 * Stores the sorted splitters[low..high) as an implicit binary search tree
+	 * rooted at tree[node].
+	 */
+	private static void buildTree(int[] splitters, int[] tree, int node, int low, int high) {
+		if (node >= tree.length)
+			return;
+		int middle = (low + high) >>> 1;
+		tree[node] = splitters[middle];
+		buildTree(splitters, tree, 2 * node, low, middle);
+		buildTree(splitters, tree, 2 * node + 1, middle + 1, high);
+	}
+
+	private static void buildTree(Comparable[] splitters, Comparable[] tree, int node,
+			int low, int high) {
+		if (node >= tree.length)
+			return;
+		int middle = (low + high) >>> 1;
+		tree[node] = splitters[middle];
+		buildTree(splitters, tree, 2 * node, low, middle);
+		buildTree(splitters, tree, 2 * node + 1, middle + 1, high);
+	}
+
+	/**
+	 * Turns the per block bucket counts into per block write positions, in
+	 * place, and returns the start of every bucket (plus n at the end).
+	 */
+	private static int[] prefixSums(int[][] counts, int k, int n) {
+		int[] bucketStart = new int[k + 1];
+		int position = 0;
+		for (int bucket = 0; bucket < k; bucket++) {
+			bucketStart[bucket] = position;
+			for (int block = 0; block < counts.length; block++) {
+				int count = counts[block][bucket];
+				counts[block][bucket] = position;
+				position += count;
+			}
+		}
+		bucketStart[k] = n;
+		return bucketStart;
+	}
+
+	/**
+	 * Runs body for 0 .. count - 1 in parallel on the common pool.
+	 */
+	private static void forEach(int count, IntConsumer body) {
+		ForkJoinPool.commonPool().invoke(new ForEach(body, 0, count));
+	}
+
+	private static class ForEach extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final IntConsumer body;
+		private final int low;
+		private final int high;
+
+		ForEach(IntConsumer body, int low, int high) {
+			this.body = body;
+			this.low = low;
+			this.high = high;
+		}
+
+		@Override
+		protected void compute() {
+			if (high - low <= 1) {
+				if (low < high)
+					body.accept(low);
+			} else {
+				int middle = (low + high) >>> 1;
+				invokeAll(new ForEach(body, low, middle), new ForEach(body, middle, high));
+			}
+		}
+	}
+
+}
@@ -0,0 +1,345 @@
+package org.datapproach.algorithm.sort;
+
+import java.util.Random;
+
+/**
+ * A single entry point that looks at the input before sorting it and picks the
+ * algorithm that suits it best, so call sites do not have to choose between
+ * QuickSort, MergeSort, HeapSort and InsertionSort themselves.
+ * 
+ * The profile is cheap to take: the length, the number of natural runs
+ * (counting stops early once the input is clearly not presorted), the share of
+ * duplicate keys in a small evenly spaced sample, the key range for int arrays
+ * (one pass for min and max) and the element type.
+ * 
+ * For Comparable arrays:
+ * 
+ * small arrays go to insertion sort, inputs made of a few long runs go to
+ * natural mergesort, inputs with many duplicate keys go to three-way
+ * quicksort, large inputs on a multi-core machine go to parallel mergesort and
+ * everything else goes to median-of-three quicksort, which hands ranges to
+ * heapsort once its recursion gets too deep.
+ * 
+ * For int arrays:
+ * 
+ * small arrays go to insertion sort, sorted arrays are left alone, keys whose
+ * range is no bigger than the array go to counting sort, large inputs without
+ * many duplicate keys on a multi-core machine go to parallel sample sort and
+ * everything else goes to radix sort.
+ * 
+ * Every decision is reported to the listener set with
+ * {@link #setListener(Listener)}, together with the profile it was based on.
+ * 
+ * @author sarath
+ *
+ */
+public class Sorter {
+
+	/**
+	 * The algorithms the sorter dispatches to.
+	 */
+	public enum Algorithm {
+		ALREADY_SORTED, INSERTION, NATURAL_MERGE, THREE_WAY_QUICK, QUICK, PARALLEL_MERGE, COUNTING, RADIX, SAMPLE
+	}
+
+	/**
+	 * Receives every dispatch decision, for logging or metrics.
+	 */
+	public interface Listener {
+		void decided(Profile profile, Algorithm algorithm);
+	}
+
+	/**
+	 * What the sorter found out about an input.
+	 */
+	public static class Profile {
+		/** The number of elements. */
+		public final int length;
+		/** The number of natural runs, or RUN_LIMIT + 1 if there are more. */
+		public final int runs;
+		/** The largest run count that still counts as presorted. */
+		public final int runLimit;
+		/** The share of duplicate keys in the sample, 0 to 1. */
+		public final double duplicateRatio;
+		/** max - min + 1 for int arrays, -1 for Comparable arrays. */
+		public final long keyRange;
+		/** The smallest key of an int array, 0 otherwise. */
+		public final int min;
+		/** The largest key of an int array, 0 otherwise. */
+		public final int max;
+		/** The type of the elements. */
+		public final Class<?> elementType;
+
+		Profile(int length, int runs, int runLimit, double duplicateRatio,
+				long keyRange, int min, int max, Class<?> elementType) {
+			this.length = length;
+			this.runs = runs;
+			this.runLimit = runLimit;
+			this.duplicateRatio = duplicateRatio;
+			this.keyRange = keyRange;
+			this.min = min;
+			this.max = max;
+			this.elementType = elementType;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("length=%d runs=%s duplicates=%.2f range=%s type=%s",
+					length, runs > runLimit ? ">" + runLimit : String.valueOf(runs),
+					duplicateRatio, keyRange < 0 ? "-" : String.valueOf(keyRange),
+					elementType == null ? "-" : elementType.getSimpleName());
+		}
+	}
+
+	private static final int INSERTION_LIMIT = 16;
+	private static final int SAMPLE_SIZE = 128;
+	private static final double DUPLICATE_LIMIT = 0.25;
+	private static final int PARALLEL_THRESHOLD = 1 << 16;
+
+	private static volatile Listener listener;
+
+	/**
+	 * @param args
+	 */
+	public static void main(String[] args) {
+
+		setListener(new Listener() {
+			@Override
+			public void decided(Profile profile, Algorithm algorithm) {
+				System.out.printf("%-16s %s%n", algorithm, profile);
+			}
+		});
+
+		Random rand = new Random(42);
+		int length = 1 << 20;
+
+		Integer[] random = new Integer[length];
+		Integer[] sorted = new Integer[length];
+		Integer[] fewKeys = new Integer[length];
+		int[] ints = new int[length];
+		int[] smallRange = new int[length];
+		for (int i = 0; i < length; i++) {
+			random[i] = rand.nextInt(1000000);
+			sorted[i] = i;
+			fewKeys[i] = rand.nextInt(16);
+			ints[i] = rand.nextInt();
+			smallRange[i] = rand.nextInt(1000);
+		}
+
+		sort(new Integer[] {5, 3, 1, 4, 2});
+		sort(random);
+		sort(sorted);
+		sort(fewKeys);
+		sort(ints);
+		sort(smallRange);
+		sort(ints);
+
+		if (!QuickSort.isSorted(random) || !QuickSort.isSorted(fewKeys)
+				|| !RadixSort.isSorted(ints) || !RadixSort.isSorted(smallRange)) {
+			throw new RuntimeException("not sorted afterward");
+		}
+	}
+
+	/**
+	 * Sets the listener that is told about every decision, or null for none.
+	 */
+	public static void setListener(Listener newListener) {
+		listener = newListener;
+	}
+
+	/**
+	 * Sorts an array of Comparable items with the algorithm its profile calls
+	 * for.
+	 * 
+	 * @param a
+	 *            an array of Comparable items.
+	 */
+	public static void sort(Comparable[] a) {
+		Profile profile = profile(a);
+		Algorithm algorithm = choose(profile);
+		report(profile, algorithm);
+		switch (algorithm) {
+		case ALREADY_SORTED:
+			break;
+		case INSERTION:
+			InsertionSort.insertionSort(a);
+			break;
+		case NATURAL_MERGE:
+			MergeSort.naturalMergesort(a);
+			break;
+		case THREE_WAY_QUICK:
+			QuickSort.quicksort3way(a);
+			break;
+		case PARALLEL_MERGE:
+			MergeSort.parallelMergesort(a);
+			break;
+		default:
+			QuickSort.quicksort(a);
+		}
+	}
+
+	/**
+	 * Sorts an array of ints with the algorithm its profile calls for.
+	 * 
+	 * @param a
+	 *            an array of ints.
+	 */
+	public static void sort(int[] a) {
+		Profile profile = profile(a);
+		Algorithm algorithm = choose(profile);
+		report(profile, algorithm);
+		switch (algorithm) {
+		case ALREADY_SORTED:
+			break;
+		case INSERTION:
+			InsertionSort.insertionSort(a);
+			break;
+		case COUNTING:
+			RadixSort.countingSort(a, profile.min, profile.max);
+			break;
+		case SAMPLE:
+			SampleSort.samplesort(a);
+			break;
+		default:
+			RadixSort.radixsort(a);
+		}
+	}
+
+	/**
+	 * Picks the algorithm for a profile.
+	 * 
+	 * @param profile
+	 *            the profile of the input.
+	 * @return the algorithm to use.
+	 */
+	public static Algorithm choose(Profile profile) {
+		if (profile.length <= INSERTION_LIMIT)
+			return Algorithm.INSERTION;
+
+		if (profile.elementType == int.class) {
+			if (profile.runs == 1)
+				return Algorithm.ALREADY_SORTED;
+			if (profile.keyRange <= profile.length)
+				return Algorithm.COUNTING;
+			// Duplicates pile up in one sample sort bucket; radix sort does not mind
+			if (profile.length >= PARALLEL_THRESHOLD
+					&& profile.duplicateRatio < DUPLICATE_LIMIT
+					&& Runtime.getRuntime().availableProcessors() > 1)
+				return Algorithm.SAMPLE;
+			return Algorithm.RADIX;
+		}
+
+		if (profile.runs <= profile.runLimit)
+			return Algorithm.NATURAL_MERGE;
+		if (profile.duplicateRatio >= DUPLICATE_LIMIT)
+			return Algorithm.THREE_WAY_QUICK;
+		if (profile.length >= PARALLEL_THRESHOLD
+				&& Runtime.getRuntime().availableProcessors() > 1)
+			return Algorithm.PARALLEL_MERGE;
+		return Algorithm.QUICK;
+	}
+
+	/**
+	 * Profiles an array of Comparable items. Runs are ascending or strictly
+	 * descending stretches, as natural mergesort would find them.
+	 * 
+	 * @param a
+	 *            an array of Comparable items.
+	 * @return the profile.
+	 */
+	public static Profile profile(Comparable[] a) {
+		int n = a.length;
+		int runLimit = runLimit(n);
+		int runs = 0;
+		int i = 0;
+		while (i < n && runs <= runLimit) {
+			runs++;
+			int j = i + 1;
+			if (j < n && a[j].compareTo(a[i]) < 0) {
+				while (j < n && a[j].compareTo(a[j - 1]) < 0)
+					j++;
+			} else {
+				while (j < n && a[j].compareTo(a[j - 1]) >= 0)
+					j++;
+			}
+			i = j;
+		}
+
+		double duplicateRatio = 0;
+		if (n > INSERTION_LIMIT) {
+			Comparable[] sample = new Comparable[Math.min(SAMPLE_SIZE, n)];
+			for (int s = 0; s < sample.length; s++)
+				sample[s] = a[(int) ((long) s * n / sample.length)];
+			// The range form, so the sample is not reported as an InsertionSort call
+			InsertionSort.insertionSort(sample, 0, sample.length - 1);
+			int duplicates = 0;
+			for (int s = 1; s < sample.length; s++) {
+				if (sample[s].compareTo(sample[s - 1]) == 0)
+					duplicates++;
+			}
+			duplicateRatio = (double) duplicates / sample.length;
+		}
+
+		return new Profile(n, runs, runLimit, duplicateRatio, -1, 0, 0,
+				n == 0 ? null : a[0].getClass());
+	}
+
+	/**
+	 * Profiles an array of ints. For ints only an ascending array counts as a
+	 * single run.
+	 * 
+	 * @param a
+	 *            an array of ints.
+	 * @return the profile.
+	 */
+	public static Profile profile(int[] a) {
+		int n = a.length;
+		int runLimit = runLimit(n);
+		int runs = n == 0 ? 0 : 1;
+		for (int i = 1; i < n && runs <= runLimit; i++) {
+			if (a[i] < a[i - 1])
+				runs++;
+		}
+
+		double duplicateRatio = 0;
+		if (n > INSERTION_LIMIT) {
+			int[] sample = new int[Math.min(SAMPLE_SIZE, n)];
+			for (int s = 0; s < sample.length; s++)
+				sample[s] = a[(int) ((long) s * n / sample.length)];
+			InsertionSort.insertionSort(sample, 0, sample.length - 1);
+			int duplicates = 0;
+			for (int s = 1; s < sample.length; s++) {
+				if (sample[s] == sample[s - 1])
+					duplicates++;
+			}
+			duplicateRatio = (double) duplicates / sample.length;
+		}
+
+		int min = n == 0 ? 0 : a[0];
+		int max = min;
+		for (int i = 1; i < n; i++) {
+			if (a[i] < min)
+				min = a[i];
+			else if (a[i] > max)
+				max = a[i];
+		}
+
+		long keyRange = n == 0 ? 0 : (long) max - min + 1;
+		return new Profile(n, runs, runLimit, duplicateRatio, keyRange, min,
+				max, int.class);
+	}
+
+	/**
+	 * Inputs with at most one run per 128 elements count as presorted.
+	 */
+	private static int runLimit(int n) {
+		return Math.max(1, n >>> 7);
+	}
+
+	private static void report(Profile profile, Algorithm algorithm) {
+		Listener current = listener;
+		if (current != null)
+			current.decided(profile, algorithm);
+	}
+
+}
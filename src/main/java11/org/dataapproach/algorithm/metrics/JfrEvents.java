@@ -0,0 +1,40 @@
+package org.dataapproach.algorithm.metrics;
+
+/**
+ * Reports every instrumented call as a {@link SortEvent} or
+ * {@link TraversalEvent} to the flight recorder.
+ *
+ * This class is compiled by the "jfr" maven profile; {@link Metrics} falls
+ * back to JMX only when it cannot be loaded.
+ *
+ * @author sarath
+ *
+ */
+final class JfrEvents implements Events {
+
+	@Override
+	public String name() {
+		return "jfr";
+	}
+
+	@Override
+	public Object beginSort() {
+		return SortEvent.start();
+	}
+
+	@Override
+	public void endSort(Object event, SortProbe probe) {
+		SortEvent.finish(event, probe);
+	}
+
+	@Override
+	public Object beginTraversal() {
+		return TraversalEvent.start();
+	}
+
+	@Override
+	public void endTraversal(Object event, TraversalProbe probe) {
+		TraversalEvent.finish(event, probe);
+	}
+
+}
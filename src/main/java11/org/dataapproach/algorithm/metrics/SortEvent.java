@@ -0,0 +1,68 @@
+package org.dataapproach.algorithm.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event committed for every instrumented sort call. Compiled by the "jfr"
+ * maven profile, see {@link Events}.
+ * 
+ * @author sarath
+ *
+ */
+@Name("org.dataapproach.algorithm.Sort")
+@Label("Sort")
+@Category("Algorithms")
+@Description("One call of an instrumented sort algorithm")
+class SortEvent extends jdk.jfr.Event {
+
+	@Label("Algorithm")
+	String algorithm;
+
+	@Label("Elements")
+	int length;
+
+	@Label("Comparisons")
+	long comparisons;
+
+	@Label("Swaps")
+	long swaps;
+
+	@Label("Moves")
+	long moves;
+
+	@Label("Allocated Elements")
+	@Description("Elements in scratch arrays allocated by the sort")
+	long allocated;
+
+	@Label("Max Recursion Depth")
+	int maxDepth;
+
+	@Label("Fallbacks")
+	long fallbacks;
+
+	static Object start() {
+		SortEvent event = new SortEvent();
+		event.begin();
+		return event;
+	}
+
+	static void finish(Object started, SortProbe probe) {
+		SortEvent event = (SortEvent) started;
+		event.end();
+		if (event.shouldCommit()) {
+			event.algorithm = probe.algorithm;
+			event.length = probe.length;
+			event.comparisons = probe.comparisons;
+			event.swaps = probe.swaps;
+			event.moves = probe.moves;
+			event.allocated = probe.allocated;
+			event.maxDepth = probe.maxDepth;
+			event.fallbacks = probe.fallbacks;
+			event.commit();
+		}
+	}
+
+}
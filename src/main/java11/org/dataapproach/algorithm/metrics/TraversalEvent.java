@@ -0,0 +1,61 @@
+package org.dataapproach.algorithm.metrics;
+
+import java.util.Arrays;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event committed for every instrumented graph traversal. Compiled by the
+ * "jfr" maven profile, see {@link Events}.
+ * 
+ * @author sarath
+ *
+ */
+@Name("org.dataapproach.algorithm.Traversal")
+@Label("Traversal")
+@Category("Algorithms")
+@Description("One run of an instrumented graph traversal")
+class TraversalEvent extends jdk.jfr.Event {
+
+	@Label("Algorithm")
+	String algorithm;
+
+	@Label("Vertices Visited")
+	long vertices;
+
+	@Label("Edges Scanned")
+	long edges;
+
+	@Label("Levels")
+	int levels;
+
+	@Label("Max Frontier")
+	int maxFrontier;
+
+	@Label("Frontier Sizes")
+	String frontierSizes;
+
+	static Object start() {
+		TraversalEvent event = new TraversalEvent();
+		event.begin();
+		return event;
+	}
+
+	static void finish(Object started, TraversalProbe probe) {
+		TraversalEvent event = (TraversalEvent) started;
+		event.end();
+		if (event.shouldCommit()) {
+			event.algorithm = probe.algorithm;
+			event.vertices = probe.vertices;
+			event.edges = probe.edges;
+			event.levels = probe.levels;
+			event.maxFrontier = probe.maxFrontier;
+			event.frontierSizes = Arrays.toString(Arrays.copyOf(probe.frontier, probe.levels));
+			event.commit();
+		}
+	}
+
+}
@@ -0,0 +1,363 @@
+package org.datapproach.algorithm.sort;
+
+import org.dataapproach.algorithm.metrics.SortProbe;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorShuffle;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD kernels for {@link PrimitiveQuickSort} built on the Vector API.
+ * 
+ * Vectors are at most 256 bits wide (8 ints or floats, 4 longs) so that the
+ * partition shuffle table, one entry per comparison mask, stays small.
+ * 
+ * sortSmall loads up to two full vectors, replacing the lanes past the range
+ * with the largest value, sorts each with a bitonic network (every stage is a
+ * lane shuffle, a min, a max and a blend), reverses the second, and merges the
+ * pair with a min/max half cleaner followed by one bitonic merge network per
+ * vector. The result goes through scratch because JDK 17 does not compile
+ * masked stores to vector instructions. Ranges longer than two vectors, or too
+ * close to the end of the array for full loads, use the scalar kernels.
+ * 
+ * partition compares a vector against the broadcast pivot, looks up the
+ * shuffle that packs the lanes below the pivot to the front, and stores the
+ * whole vector at the write position in the array itself. The write position
+ * never passes the read position, so only lanes that were already loaded are
+ * overwritten. The other lanes are packed the same way into the scratch buffer
+ * and copied behind the first group at the end. The JDK 17 Vector API has no
+ * compress operation yet, hence the shuffle table.
+ * 
+ * This class is compiled by the "vector" maven profile and needs
+ * --add-modules jdk.incubator.vector at run time; PrimitiveQuickSort falls
+ * back to its scalar kernels when it cannot be loaded.
+ * 
+ * @author sarath
+ *
+ */
+final class VectorKernels implements PrimitiveKernels {
+
+	private static final VectorShape SHAPE = VectorShape.forBitSize(
+			Math.min(256, VectorShape.preferredShape().vectorBitSize()));
+
+	private static final VectorSpecies<Integer> INTS = VectorSpecies.of(int.class, SHAPE);
+	private static final VectorSpecies<Long> LONGS = VectorSpecies.of(long.class, SHAPE);
+	private static final VectorSpecies<Float> FLOATS = VectorSpecies.of(float.class, SHAPE);
+
+	private static final Network<Integer> INT_NETWORK = new Network<>(INTS);
+	private static final Network<Long> LONG_NETWORK = new Network<>(LONGS);
+	private static final Network<Float> FLOAT_NETWORK = new Network<>(FLOATS);
+
+	private static final PrimitiveKernels SCALAR = new PrimitiveQuickSort.ScalarKernels();
+
+	@Override
+	public String name() {
+		return "vector (" + SHAPE.vectorBitSize() + " bit)";
+	}
+
+	@Override
+	public void sortSmall(int[] a, int low, int high, int[] scratch) {
+		int lanes = INTS.length();
+		int length = high - low + 1;
+		// One full load for a single vector's worth, two otherwise
+		int loaded = length <= lanes ? lanes : 2 * lanes;
+		if (length > 2 * lanes || low + loaded > a.length) {
+			if (length <= 2 * lanes)
+				SortProbe.fallback(); // too close to the end for full loads
+			SCALAR.sortSmall(a, low, high, scratch);
+			return;
+		}
+		// Full loads, lanes past high replaced by padding that sorts last
+		IntVector pad = IntVector.broadcast(INTS, Integer.MAX_VALUE);
+		IntVector v0 = IntVector.fromArray(INTS, a, low);
+		v0 = pad.blend(v0, INTS.indexInRange(0, length));
+		if (length <= lanes) {
+			sort(v0).intoArray(scratch, 0);
+		} else {
+			IntVector v1 = IntVector.fromArray(INTS, a, low + lanes);
+			v1 = pad.blend(v1, INTS.indexInRange(lanes, length));
+			IntVector first = sort(v0);
+			IntVector second = sort(v1).rearrange(INT_NETWORK.reverse);
+			merge(first.min(second)).intoArray(scratch, 0);
+			merge(first.max(second)).intoArray(scratch, lanes);
+		}
+		System.arraycopy(scratch, 0, a, low, length);
+	}
+
+	@Override
+	public int partition(int[] a, int low, int high, int pivot, boolean orEqual, int[] scratch) {
+		int lanes = INTS.length();
+		int full = (1 << lanes) - 1;
+		IntVector pivots = IntVector.broadcast(INTS, pivot);
+		int write = low;
+		int rest = 0;
+		int i = low;
+		for (; i + lanes <= high + 1; i += lanes) {
+			IntVector v = IntVector.fromArray(INTS, a, i);
+			// The operator must be a constant for the comparison to be intrinsified
+			int bits = orEqual ? (int) v.compare(VectorOperators.LE, pivots).toLong()
+					: (int) v.compare(VectorOperators.LT, pivots).toLong();
+			v.rearrange(INT_NETWORK.compress[bits]).intoArray(a, write);
+			v.rearrange(INT_NETWORK.compress[~bits & full]).intoArray(scratch, rest);
+			int count = Integer.bitCount(bits);
+			write += count;
+			rest += lanes - count;
+		}
+		for (; i <= high; i++) {
+			int x = a[i];
+			if (x < pivot || orEqual && x == pivot)
+				a[write++] = x;
+			else
+				scratch[rest++] = x;
+		}
+		System.arraycopy(scratch, 0, a, write, rest);
+		return write;
+	}
+
+	private static IntVector sort(IntVector v) {
+		for (int s = 0; s < INT_NETWORK.sortPartner.length; s++) {
+			IntVector p = v.rearrange(INT_NETWORK.sortPartner[s]);
+			v = v.min(p).blend(v.max(p), INT_NETWORK.sortTakeMax[s]);
+		}
+		return v;
+	}
+
+	private static IntVector merge(IntVector v) {
+		for (int s = 0; s < INT_NETWORK.mergePartner.length; s++) {
+			IntVector p = v.rearrange(INT_NETWORK.mergePartner[s]);
+			v = v.min(p).blend(v.max(p), INT_NETWORK.mergeTakeMax[s]);
+		}
+		return v;
+	}
+
+	@Override
+	public void sortSmall(long[] a, int low, int high, long[] scratch) {
+		int lanes = LONGS.length();
+		int length = high - low + 1;
+		// One full load for a single vector's worth, two otherwise
+		int loaded = length <= lanes ? lanes : 2 * lanes;
+		if (length > 2 * lanes || low + loaded > a.length) {
+			if (length <= 2 * lanes)
+				SortProbe.fallback(); // too close to the end for full loads
+			SCALAR.sortSmall(a, low, high, scratch);
+			return;
+		}
+		// Full loads, lanes past high replaced by padding that sorts last
+		LongVector pad = LongVector.broadcast(LONGS, Long.MAX_VALUE);
+		LongVector v0 = LongVector.fromArray(LONGS, a, low);
+		v0 = pad.blend(v0, LONGS.indexInRange(0, length));
+		if (length <= lanes) {
+			sort(v0).intoArray(scratch, 0);
+		} else {
+			LongVector v1 = LongVector.fromArray(LONGS, a, low + lanes);
+			v1 = pad.blend(v1, LONGS.indexInRange(lanes, length));
+			LongVector first = sort(v0);
+			LongVector second = sort(v1).rearrange(LONG_NETWORK.reverse);
+			merge(first.min(second)).intoArray(scratch, 0);
+			merge(first.max(second)).intoArray(scratch, lanes);
+		}
+		System.arraycopy(scratch, 0, a, low, length);
+	}
+
+	@Override
+	public int partition(long[] a, int low, int high, long pivot, boolean orEqual, long[] scratch) {
+		int lanes = LONGS.length();
+		int full = (1 << lanes) - 1;
+		LongVector pivots = LongVector.broadcast(LONGS, pivot);
+		int write = low;
+		int rest = 0;
+		int i = low;
+		for (; i + lanes <= high + 1; i += lanes) {
+			LongVector v = LongVector.fromArray(LONGS, a, i);
+			// The operator must be a constant for the comparison to be intrinsified
+			int bits = orEqual ? (int) v.compare(VectorOperators.LE, pivots).toLong()
+					: (int) v.compare(VectorOperators.LT, pivots).toLong();
+			v.rearrange(LONG_NETWORK.compress[bits]).intoArray(a, write);
+			v.rearrange(LONG_NETWORK.compress[~bits & full]).intoArray(scratch, rest);
+			int count = Integer.bitCount(bits);
+			write += count;
+			rest += lanes - count;
+		}
+		for (; i <= high; i++) {
+			long x = a[i];
+			if (x < pivot || orEqual && x == pivot)
+				a[write++] = x;
+			else
+				scratch[rest++] = x;
+		}
+		System.arraycopy(scratch, 0, a, write, rest);
+		return write;
+	}
+
+	private static LongVector sort(LongVector v) {
+		for (int s = 0; s < LONG_NETWORK.sortPartner.length; s++) {
+			LongVector p = v.rearrange(LONG_NETWORK.sortPartner[s]);
+			v = v.min(p).blend(v.max(p), LONG_NETWORK.sortTakeMax[s]);
+		}
+		return v;
+	}
+
+	private static LongVector merge(LongVector v) {
+		for (int s = 0; s < LONG_NETWORK.mergePartner.length; s++) {
+			LongVector p = v.rearrange(LONG_NETWORK.mergePartner[s]);
+			v = v.min(p).blend(v.max(p), LONG_NETWORK.mergeTakeMax[s]);
+		}
+		return v;
+	}
+
+	@Override
+	public void sortSmall(float[] a, int low, int high, float[] scratch) {
+		int lanes = FLOATS.length();
+		int length = high - low + 1;
+		// One full load for a single vector's worth, two otherwise
+		int loaded = length <= lanes ? lanes : 2 * lanes;
+		if (length > 2 * lanes || low + loaded > a.length) {
+			if (length <= 2 * lanes)
+				SortProbe.fallback(); // too close to the end for full loads
+			SCALAR.sortSmall(a, low, high, scratch);
+			return;
+		}
+		// Full loads, lanes past high replaced by padding that sorts last
+		FloatVector pad = FloatVector.broadcast(FLOATS, Float.POSITIVE_INFINITY);
+		FloatVector v0 = FloatVector.fromArray(FLOATS, a, low);
+		v0 = pad.blend(v0, FLOATS.indexInRange(0, length));
+		if (length <= lanes) {
+			sort(v0).intoArray(scratch, 0);
+		} else {
+			FloatVector v1 = FloatVector.fromArray(FLOATS, a, low + lanes);
+			v1 = pad.blend(v1, FLOATS.indexInRange(lanes, length));
+			FloatVector first = sort(v0);
+			FloatVector second = sort(v1).rearrange(FLOAT_NETWORK.reverse);
+			merge(first.min(second)).intoArray(scratch, 0);
+			merge(first.max(second)).intoArray(scratch, lanes);
+		}
+		System.arraycopy(scratch, 0, a, low, length);
+	}
+
+	@Override
+	public int partition(float[] a, int low, int high, float pivot, boolean orEqual, float[] scratch) {
+		int lanes = FLOATS.length();
+		int full = (1 << lanes) - 1;
+		FloatVector pivots = FloatVector.broadcast(FLOATS, pivot);
+		int write = low;
+		int rest = 0;
+		int i = low;
+		for (; i + lanes <= high + 1; i += lanes) {
+			FloatVector v = FloatVector.fromArray(FLOATS, a, i);
+			// The operator must be a constant for the comparison to be intrinsified
+			int bits = orEqual ? (int) v.compare(VectorOperators.LE, pivots).toLong()
+					: (int) v.compare(VectorOperators.LT, pivots).toLong();
+			v.rearrange(FLOAT_NETWORK.compress[bits]).intoArray(a, write);
+			v.rearrange(FLOAT_NETWORK.compress[~bits & full]).intoArray(scratch, rest);
+			int count = Integer.bitCount(bits);
+			write += count;
+			rest += lanes - count;
+		}
+		for (; i <= high; i++) {
+			float x = a[i];
+			if (x < pivot || orEqual && x == pivot)
+				a[write++] = x;
+			else
+				scratch[rest++] = x;
+		}
+		System.arraycopy(scratch, 0, a, write, rest);
+		return write;
+	}
+
+	private static FloatVector sort(FloatVector v) {
+		for (int s = 0; s < FLOAT_NETWORK.sortPartner.length; s++) {
+			FloatVector p = v.rearrange(FLOAT_NETWORK.sortPartner[s]);
+			v = v.min(p).blend(v.max(p), FLOAT_NETWORK.sortTakeMax[s]);
+		}
+		return v;
+	}
+
+	private static FloatVector merge(FloatVector v) {
+		for (int s = 0; s < FLOAT_NETWORK.mergePartner.length; s++) {
+			FloatVector p = v.rearrange(FLOAT_NETWORK.mergePartner[s]);
+			v = v.min(p).blend(v.max(p), FLOAT_NETWORK.mergeTakeMax[s]);
+		}
+		return v;
+	}
+
+	/**
+	 * The shuffles and masks of the bitonic networks for one species, plus the
+	 * partition shuffle table.
+	 */
+	private static final class Network<E> {
+		final VectorShuffle<E>[] sortPartner;
+		final VectorMask<E>[] sortTakeMax;
+		final VectorShuffle<E>[] mergePartner;
+		final VectorMask<E>[] mergeTakeMax;
+		final VectorShuffle<E> reverse;
+		/** compress[m] moves the lanes set in m to the front, in order. */
+		final VectorShuffle<E>[] compress;
+
+		@SuppressWarnings("unchecked")
+		Network(VectorSpecies<E> species) {
+			int lanes = species.length();
+			int log = Integer.numberOfTrailingZeros(lanes);
+
+			// Full bitonic sort: for k = 2, 4, .. lanes and j = k / 2 .. 1
+			int stages = log * (log + 1) / 2;
+			sortPartner = new VectorShuffle[stages];
+			sortTakeMax = new VectorMask[stages];
+			int s = 0;
+			for (int k = 2; k <= lanes; k <<= 1) {
+				for (int j = k >> 1; j > 0; j >>= 1, s++) {
+					int[] partner = new int[lanes];
+					boolean[] takeMax = new boolean[lanes];
+					for (int i = 0; i < lanes; i++) {
+						partner[i] = i ^ j;
+						boolean ascending = (i & k) == 0;
+						boolean lower = (i & j) == 0;
+						takeMax[i] = lower != ascending;
+					}
+					sortPartner[s] = VectorShuffle.fromArray(species, partner, 0);
+					sortTakeMax[s] = VectorMask.fromArray(species, takeMax, 0);
+				}
+			}
+
+			// Ascending bitonic merge: j = lanes / 2 .. 1
+			mergePartner = new VectorShuffle[log];
+			mergeTakeMax = new VectorMask[log];
+			s = 0;
+			for (int j = lanes >> 1; j > 0; j >>= 1, s++) {
+				int[] partner = new int[lanes];
+				boolean[] takeMax = new boolean[lanes];
+				for (int i = 0; i < lanes; i++) {
+					partner[i] = i ^ j;
+					takeMax[i] = (i & j) != 0;
+				}
+				mergePartner[s] = VectorShuffle.fromArray(species, partner, 0);
+				mergeTakeMax[s] = VectorMask.fromArray(species, takeMax, 0);
+			}
+
+			int[] reversed = new int[lanes];
+			for (int i = 0; i < lanes; i++)
+				reversed[i] = lanes - 1 - i;
+			reverse = VectorShuffle.fromArray(species, reversed, 0);
+
+			compress = new VectorShuffle[1 << lanes];
+			for (int m = 0; m < compress.length; m++) {
+				int[] order = new int[lanes];
+				int next = 0;
+				for (int i = 0; i < lanes; i++) {
+					if ((m & (1 << i)) != 0)
+						order[next++] = i;
+				}
+				for (int i = 0; i < lanes; i++) {
+					if ((m & (1 << i)) == 0)
+						order[next++] = i;
+				}
+				compress[m] = VectorShuffle.fromArray(species, order, 0);
+			}
+		}
+	}
+
+}